@@ -26,6 +26,14 @@ public class GameOver extends AppCompatActivity {
         String text = "The winner is "+ winner + "!";
         winnerText.setText(text);
 
+        PopulationChart populationChart = findViewById(R.id.populationChart);
+        int[] population = getIntent().getIntArrayExtra("population");
+        if (population != null) {
+            populationChart.setHistory(population);
+        } else {
+            populationChart.setVisibility(View.GONE);
+        }
+
         Button menuButton = findViewById(R.id.menuButton);
         menuButton.setOnClickListener(new View.OnClickListener() {
             @Override
@@ -51,5 +59,6 @@ public class GameOver extends AppCompatActivity {
     private void goToMainScreen(){
         Intent intent = new Intent(getApplicationContext(), MainActivity.class);
         startActivity(intent);
+        finish();
     }
 }
\ No newline at end of file
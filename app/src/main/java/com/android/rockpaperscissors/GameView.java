@@ -1,83 +1,279 @@
 package com.android.rockpaperscissors;
 
+import android.app.Activity;
 import android.content.Context;
 import android.content.Intent;
 import android.content.res.Resources;
 import android.graphics.Bitmap;
-import android.graphics.BitmapFactory;
+import android.graphics.BitmapShader;
 import android.graphics.Canvas;
 import android.graphics.Color;
 import android.graphics.Paint;
+import android.graphics.RectF;
+import android.graphics.Shader;
+import android.os.Build;
+import android.os.Debug;
+import android.view.MotionEvent;
+import android.view.ScaleGestureDetector;
 import android.view.SurfaceHolder;
 import android.view.SurfaceView;
+import android.view.ViewConfiguration;
 
-import androidx.activity.OnBackPressedCallback;
 import androidx.annotation.NonNull;
 
-import java.util.ArrayList;
+import com.android.rockpaperscissors.engine.CheckpointRing;
+import com.android.rockpaperscissors.engine.DensityField;
+import com.android.rockpaperscissors.engine.Histogram;
+import com.android.rockpaperscissors.engine.Metrics;
+import com.android.rockpaperscissors.engine.PopulationHistory;
+import com.android.rockpaperscissors.engine.QualityGovernor;
+import com.android.rockpaperscissors.engine.RenderFrame;
+import com.android.rockpaperscissors.engine.ReplayWriter;
+import com.android.rockpaperscissors.engine.Snapshot;
+import com.android.rockpaperscissors.engine.SoftwareRenderer;
+import com.android.rockpaperscissors.engine.SpriteBatch;
+import com.android.rockpaperscissors.engine.Team;
+import com.android.rockpaperscissors.engine.TripleBuffer;
+import com.android.rockpaperscissors.engine.Viewport;
+import com.android.rockpaperscissors.engine.World;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 public class GameView extends SurfaceView implements SurfaceHolder.Callback {
 
-    private final com.android.rockpaperscissors.MainThread thread;
-    private final int screenWidth, screenHeight, bottomWall, groupSize, speed, spriteSize;
-    private final Bitmap rockImage, paperImage, scissorsImage;
-    private final Paint paint;
-    private final ArrayList<Sprite> allSprites;
-    private Sprite[] rocks, papers, scissors;
+    // colors are parsed once instead of on every frame
+    private static final int BACKGROUND_COLOR = Color.parseColor("#FFFDF2");
+    private static final int ROCK_BAR_COLOR = Color.parseColor("#A6D0DD");
+    private static final int PAPER_BAR_COLOR = Color.parseColor("#FFD3B0");
+    private static final int SCISSORS_BAR_COLOR = Color.parseColor("#FF6969");
+    // simulation ticks and drawn frames per second
+    private static final int TICK_RATE = World.TICK_RATE;
+    private static final int FRAME_RATE = 60;
+
+    private static final float NANOS_PER_SECOND = 1_000_000_000f;
+    // draw sprites into a pixel buffer on the CPU instead of batched vertices
+    private static final boolean SOFTWARE_RENDERING = false;
+    // replay of the current match in the app's files directory, overwritten by every match
+    private static final String REPLAY_FILE = "last.replay";
+    // a keyframe every second for the last five minutes, about 22 KB each for the 750 agents of the largest
+    // group size on one screen, see Snapshot.getSize
+    private static final int KEYFRAME_INTERVAL = TICK_RATE;
+    private static final int KEYFRAMES = 5 * 60;
+    // large arenas keep fewer keyframes, so they fit in this many bytes
+    private static final int KEYFRAME_BUDGET_BYTES = 32 * 1024 * 1024;
+    // ticks scrubbed by dragging across the whole width of the screen
+    private static final int SCRUB_TICKS_PER_WIDTH = 30 * TICK_RATE;
+    private static final int PAUSED_OVERLAY_COLOR = Color.argb(96, 0, 0, 0);
+    private static final int NO_SCRUB = -1;
+    // sprites can be zoomed in up to four times their size on the whole-screen arena
+    private static final float MAX_ZOOM = 4;
+    // sprites smaller than this many pixels on screen are drawn as a density heatmap instead
+    private static final float LOD_SPRITE_PIXELS = 4;
+    // metrics of the current match, written when it is paused or over
+    private static final String METRICS_FILE = "metrics.json";
+    // the overlay text only changes twice a second so it can be read
+    private static final long METRICS_REFRESH_NANOS = 500_000_000L;
+    private static final int METRICS_LINE_LENGTH = 96;
+    private static final int METRICS_TEXT_COLOR = Color.argb(200, 0, 0, 0);
+
+    private com.android.rockpaperscissors.MainThread thread;
+    private SimulationThread simulationThread;
+    private final int screenWidth, screenHeight, bottomWall, groupSize, spriteSize;
+    // the arena is this many screens wide and high
+    private final int arenaScale;
+    private final Paint paint, spritePaint;
+    private final SpriteBatch spriteBatch;
+    // CPU fallback: the atlas as pixels, the frame buffer and the bitmap it is uploaded to
+    private final int[] atlasPixels;
+    private final SoftwareRenderer softwareRenderer;
+    private final Bitmap softwareFrame;
+    private final World world;
+    // frames passed from the simulation thread to the render thread
+    private final TripleBuffer<RenderFrame> frames;
+    // the part of the arena on screen, moved on the UI thread and copied by the render thread each frame
+    private final Viewport viewport, renderViewport;
+    private final ScaleGestureDetector scaleDetector;
+    private float panX, panY;
+    private boolean panning;
+    // level of detail: the heatmap is uploaded to this bitmap, null if sprites can never get small enough
+    private final Bitmap densityBitmap;
+    private final Paint densityPaint;
+    private final RectF densityTarget;
+    // set by the render thread while it draws the heatmap, so the simulation thread builds it
+    private volatile boolean densityWanted;
+    // instrumentation, null unless the match was started with metrics shown
+    private final Metrics metrics;
+    // consistent copies of the metrics, read by the render thread for the overlay and by the
+    // simulation thread for the dump
+    private final Metrics overlayMetrics, dumpedMetrics;
+    // set by pausing, the simulation thread writes the metrics once it stopped stepping
+    private volatile boolean metricsDumpWanted;
+    // furthest tick in the latest dump, pausing again without playing on does not write the same metrics
+    private long dumpedTick = -1;
+    // lowers the quality when frames or ticks take too long, and raises it again when there is time left
+    private final QualityGovernor governor = new QualityGovernor(1_000_000_000L / FRAME_RATE, TICK_RATE);
+    private final Paint metricsPaint;
+    private final StringBuilder metricsText;
+    private final char[][] metricsLines;
+    private final int[] metricsLengths;
+    private long metricsRefreshNanos;
+    private ReplayWriter replay;
+    // populations over the match, shown by GameOver
+    private final PopulationHistory history;
+    private final CheckpointRing keyframes;
+    // furthest tick played, scrubbing forward stops there
+    private long furthestTick;
+    // tick of the latest published frame, for the UI thread
+    private volatile long publishedTick;
+    private volatile boolean paused;
+    // tick requested by scrubbing, applied on the simulation thread
+    private volatile long scrubTick = NO_SCRUB;
+    private final int touchSlop;
+    private float scrubStartX;
+    private long scrubStartTick;
+    private boolean scrubbing;
 
-    public GameView(Context context,int groupSize, int speed) {
+    /**
+     * Create the game.
+     * @param groupSize     number of agents per team on each screen of the arena.
+     * @param speed         speed of the agents.
+     * @param arenaScale    width and height of the arena in screens. The arena holds
+     *                      arenaScale squared times as many agents at the same density.
+     * @param showMetrics   time every phase of both loops and draw the numbers over the match.
+     *                      Nothing is timed when false.
+     */
+    public GameView(Context context,int groupSize, int speed, int arenaScale, boolean showMetrics) {
         super(context);
         getHolder().addCallback(this);
-        thread = new com.android.rockpaperscissors.MainThread(getHolder(), this);
         setFocusable(true);
+        touchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
 
-        // what to do when back button is pressed
-        OnBackPressedCallback callback = new OnBackPressedCallback(true /* enabled by default */) {
-            @Override
-            public void handleOnBackPressed() {
-//                TODO: back button should pause the game
-//                thread.setRunning(false);
-//                Intent intent = new Intent(getContext(), MainActivity.class);
-//                getContext().startActivity(intent);
-            }
-        };
-
-        this.groupSize = groupSize;
-        this.speed = speed;
+        this.arenaScale = arenaScale;
+        this.groupSize = groupSize * arenaScale * arenaScale;
         screenWidth = Resources.getSystem().getDisplayMetrics().widthPixels;
         screenHeight = Resources.getSystem().getDisplayMetrics().heightPixels;
         bottomWall = screenHeight - screenHeight /15;
         // Auto-sizing sprites based on groupSize. Not perfect but works OK.
         spriteSize = (int) Math.sqrt(((float)bottomWall*screenWidth)/(groupSize*3))/2;
 
-        // create and scale bitmaps for sprite images
-        rockImage = Bitmap.createScaledBitmap(
-                BitmapFactory.decodeResource(getResources(), R.drawable.rock),
-                spriteSize, spriteSize, true);
-        paperImage = Bitmap.createScaledBitmap(
-                BitmapFactory.decodeResource(getResources(), R.drawable.paper),
-                spriteSize, spriteSize, true);
-        scissorsImage = Bitmap.createScaledBitmap(
-                BitmapFactory.decodeResource(getResources(), R.drawable.scissors),
-                spriteSize, spriteSize, true);
-
         paint = new Paint();
 
-        allSprites = new ArrayList<>();
+        // a single texture atlas with every team side by side, so all sprites can be drawn in one batch.
+        // It is shared with earlier and later matches of the same sprite size.
+        Bitmap atlas = SpriteCache.get(context).getAtlas(spriteSize);
+        spritePaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        spritePaint.setShader(new BitmapShader(atlas, Shader.TileMode.CLAMP, Shader.TileMode.CLAMP));
+
+        // the simulation runs in the area above the score bars, or in an arena of several such areas
+        world = new World(screenWidth * arenaScale, bottomWall * arenaScale, this.groupSize, speed, spriteSize,
+                new Random().nextLong());
+        // spread the read phase of large matches over the idle cores
+        if (Runtime.getRuntime().availableProcessors() > 1) {
+            world.setPool(ForkJoinPool.commonPool());
+        }
+
+        try {
+            replay = new ReplayWriter(world,
+                    new FileOutputStream(new File(context.getFilesDir(), REPLAY_FILE)).getChannel());
+        } catch (IOException e) {
+            // the match is still played, just not recorded
+            e.printStackTrace();
+        }
+
+        history = new PopulationHistory(world, PopulationHistory.DEFAULT_CAPACITY);
+
+        int keyframeCount = Math.max(1, Math.min(KEYFRAMES, KEYFRAME_BUDGET_BYTES / Snapshot.getSize(world)));
+        keyframes = new CheckpointRing(world, keyframeCount, KEYFRAME_INTERVAL);
+        keyframes.record(world);
+
+        int agentCount = world.getAgentCount();
+        spriteBatch = new SpriteBatch(agentCount, spriteSize);
+        if (SOFTWARE_RENDERING) {
+            atlasPixels = new int[atlas.getWidth() * atlas.getHeight()];
+            atlas.getPixels(atlasPixels, 0, atlas.getWidth(), 0, 0, atlas.getWidth(), atlas.getHeight());
+            softwareRenderer = new SoftwareRenderer(screenWidth, bottomWall);
+            softwareFrame = Bitmap.createBitmap(screenWidth, bottomWall, Bitmap.Config.ARGB_8888);
+        } else {
+            atlasPixels = null;
+            softwareRenderer = null;
+            softwareFrame = null;
+        }
+
+        RenderFrame[] frameBuffers = {world.createFrame(), world.createFrame(), world.createFrame()};
+        float minZoom = Math.min((float) screenWidth / world.getWidth(), (float) bottomWall / world.getHeight());
+        if (spriteSize * minZoom < LOD_SPRITE_PIXELS * QualityGovernor.MAX_LOD_SCALE) {
+            // a texel for every agent, but none smaller than a screen pixel when zoomed out fully
+            float texelSize = Math.max(spriteSize, 1 / minZoom);
+            int[] teamColors = new int[Team.count()];
+            teamColors[Team.ROCK.ordinal()] = ROCK_BAR_COLOR;
+            teamColors[Team.PAPER.ordinal()] = PAPER_BAR_COLOR;
+            teamColors[Team.SCISSORS.ordinal()] = SCISSORS_BAR_COLOR;
+            DensityField density = null;
+            for (RenderFrame frameBuffer : frameBuffers) {
+                density = new DensityField(world.getWidth(), world.getHeight(), texelSize, spriteSize, teamColors);
+                frameBuffer.setDensityField(density);
+            }
+            densityBitmap = Bitmap.createBitmap(density.getColumns(), density.getRows(), Bitmap.Config.ARGB_8888);
+        } else {
+            densityBitmap = null;
+        }
+        densityPaint = new Paint(Paint.FILTER_BITMAP_FLAG);
+        densityTarget = new RectF();
+        frames = new TripleBuffer<>(frameBuffers[0], frameBuffers[1], frameBuffers[2]);
+
+        if (showMetrics) {
+            metrics = new Metrics(world.getTeamCount());
+            overlayMetrics = new Metrics(world.getTeamCount());
+            dumpedMetrics = new Metrics(world.getTeamCount());
+            world.addConversionListener(metrics);
+            metricsPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+            metricsPaint.setColor(METRICS_TEXT_COLOR);
+            metricsPaint.setTextSize(screenWidth / 36f);
+            metricsText = new StringBuilder(METRICS_LINE_LENGTH);
+            // a line for the match and the garbage collector, then one per phase
+            metricsLines = new char[Metrics.Phase.values().length + 2][METRICS_LINE_LENGTH];
+            metricsLengths = new int[metricsLines.length];
+        } else {
+            metrics = null;
+            overlayMetrics = null;
+            dumpedMetrics = null;
+            metricsPaint = null;
+            metricsText = null;
+            metricsLines = null;
+            metricsLengths = null;
+        }
+        // the render thread starts with the spawn positions
+        world.writeFrame(frames.getWriteBuffer(), System.nanoTime());
+        frames.publish();
 
-        rocks = new Sprite[groupSize*3];
-        papers = new Sprite[groupSize*3];
-        scissors = new Sprite[groupSize*3];
+        // large arenas start in the middle at full sprite size, zooming out shows the whole match
+        viewport = new Viewport(world.getWidth(), world.getHeight(), screenWidth, bottomWall, MAX_ZOOM);
+        renderViewport = new Viewport(world.getWidth(), world.getHeight(), screenWidth, bottomWall, MAX_ZOOM);
+        scaleDetector = new ScaleGestureDetector(context, new ScaleGestureDetector.SimpleOnScaleGestureListener() {
+            @Override
+            public boolean onScale(ScaleGestureDetector detector) {
+                viewport.zoom(detector.getScaleFactor(), detector.getFocusX(), detector.getFocusY());
+                return true;
+            }
+        });
     }
 
+    /**
+     * Starts new threads on the kept world, so a match continues where it was when the surface was destroyed.
+     */
     @Override
     public void surfaceCreated(@NonNull SurfaceHolder surfaceHolder) {
-        // create sprites
-        createSprites(groupSize, rockImage, 0, rocks, papers, scissors);
-        createSprites(groupSize, paperImage, groupSize, papers, scissors, rocks);
-        createSprites(groupSize, scissorsImage, 2*groupSize, scissors, rocks, papers);
-
+        thread = new com.android.rockpaperscissors.MainThread(getHolder(), this, FRAME_RATE);
+        simulationThread = new SimulationThread(this, TICK_RATE);
+        simulationThread.setRunning(true);
+        simulationThread.start();
         thread.setRunning(true);
         thread.start();
     }
@@ -90,7 +286,9 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback {
         boolean retry = true;
         while (retry) {
             try {
+                simulationThread.setRunning(false);
                 thread.setRunning(false);
+                simulationThread.join();
                 thread.join();
             } catch (InterruptedException e) {
                 e.printStackTrace();
@@ -99,73 +297,251 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback {
         }
     }
 
+    @Override
+    protected void onDetachedFromWindow() {
+        super.onDetachedFromWindow();
+        closeReplay();
+    }
+
+    /**
+     * The back button pauses the match, or resumes a paused match.
+     * The simulation thread writes the metrics of a paused match, see {@link #applyMetricsDump()}.
+     */
+    public void onBackPressed() {
+        paused = !paused;
+        if (paused && metrics != null) {
+            metricsDumpWanted = true;
+        }
+    }
+
+    /**
+     * @return Counters of the match for the loops to record into, or null if instrumentation is off.
+     */
+    public Metrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * @return Quality governor of the match, fed with tick and draw times by both threads.
+     */
+    public QualityGovernor getGovernor() {
+        return governor;
+    }
+
+    /**
+     * @return True while the match is paused. The simulation thread only applies scrubbing then.
+     */
+    public boolean isPaused() {
+        return paused;
+    }
+
+    /**
+     * While playing, dragging pans and pinching zooms a large arena.
+     * While paused, dragging sideways scrubs through the match and a tap resumes it.
+     */
+    @Override
+    public boolean onTouchEvent(MotionEvent event) {
+        if (!paused) {
+            return arenaScale > 1 && onViewportTouch(event);
+        }
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                scrubStartX = event.getX();
+                scrubStartTick = publishedTick;
+                scrubbing = false;
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                float distance = event.getX() - scrubStartX;
+                if (Math.abs(distance) > touchSlop) {
+                    scrubbing = true;
+                }
+                if (scrubbing) {
+                    scrubTick = Math.max(0, scrubStartTick + (long) (distance / screenWidth * SCRUB_TICKS_PER_WIDTH));
+                }
+                return true;
+            case MotionEvent.ACTION_UP:
+                if (!scrubbing) {
+                    paused = false;
+                }
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Pans the viewport with one finger and zooms it with two.
+     */
+    private boolean onViewportTouch(MotionEvent event) {
+        scaleDetector.onTouchEvent(event);
+        switch (event.getActionMasked()) {
+            case MotionEvent.ACTION_DOWN:
+                panX = event.getX();
+                panY = event.getY();
+                panning = true;
+                return true;
+            case MotionEvent.ACTION_POINTER_DOWN:
+                // a pinch started, panning resumes with the next single finger
+                panning = false;
+                return true;
+            case MotionEvent.ACTION_MOVE:
+                if (panning && !scaleDetector.isInProgress()) {
+                    viewport.pan(event.getX() - panX, event.getY() - panY);
+                    panX = event.getX();
+                    panY = event.getY();
+                }
+                return true;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * Moves the paused match to the tick requested by scrubbing, within the kept keyframes and the
+     * furthest tick played. Called on the simulation thread.
+     */
+    public void applyScrub() {
+        long tick = scrubTick;
+        if (tick == NO_SCRUB) {
+            return;
+        }
+        scrubTick = NO_SCRUB;
+        tick = Math.max(keyframes.getOldestTick(), Math.min(furthestTick, tick));
+        if (tick == world.getTick()) {
+            return;
+        }
+        if (replay != null) {
+            replay.rewind();
+        }
+        keyframes.seek(world, tick);
+        publishFrame();
+    }
+
     /**
-     * Create all sprites for a sprite group.
-     * @param groupSize     number of sprites in group.
-     * @param image         bitmap for sprite image.
-     * @param offset        offset in sprite group, to fill Sprite[].
-     * @param ownGroup      Sprite[] of the sprites.
-     * @param hunterGroup   Sprite[] for hunters.
-     * @param preyGroup     Sprite[] for prey.
+     * Writes the metrics when pausing asked for them and ticks were played since the latest dump.
+     * Called on the simulation thread while the match is paused, after its last step.
      */
-    private void createSprites(int groupSize, Bitmap image, int offset, Sprite[] ownGroup, Sprite[] hunterGroup, Sprite[] preyGroup) {
-        for (int i = 0; i < groupSize; i++) {
-            Random random = new Random();
-            int randomX = random.nextInt(screenWidth - spriteSize);
-            int randomY = random.nextInt(bottomWall - spriteSize);
-            Sprite sprite = new Sprite(spriteSize, image, randomX, randomY, ownGroup, hunterGroup, preyGroup, speed);
-            ownGroup[i + offset] = sprite;
-            allSprites.add(sprite);
+    public void applyMetricsDump() {
+        if (!metricsDumpWanted) {
+            return;
+        }
+        metricsDumpWanted = false;
+        if (furthestTick > dumpedTick) {
+            writeMetrics();
         }
     }
 
     /**
-     * Checks if a sprite group has won.
-     * Updates all sprites.
+     * Checks if a team has won.
+     * Advances the simulation by one tick. Called on the simulation thread.
+     * @param dt    length of the tick in seconds.
      */
-    public void updateSprites(){
+    public void updateSprites(float dt){
         checkWinner();
-        for(Sprite sprite: allSprites) {
-            sprite.update();
+        if (world.getRetargetInterval() != governor.getRetargetInterval()) {
+            // ignored while ticks played before scrubbing back are played again
+            world.setRetargetInterval(governor.getRetargetInterval());
         }
+        long start = System.nanoTime();
+        world.step(dt);
+        long tickNanos = System.nanoTime() - start;
+        governor.recordTick(tickNanos);
+        if (metrics != null) {
+            metrics.record(Metrics.Phase.TICK, tickNanos);
+            metrics.onTick(world);
+        }
+        history.onTick(world);
+        keyframes.record(world);
+        furthestTick = Math.max(furthestTick, world.getTick());
     }
 
     /**
-     * Counts all sprites in a group.
-     * @param group Group to be counted.
-     * @return      Returns int number of sprites in group.
+     * Batched vertices can be drawn on a hardware canvas from Android 10,
+     * older versions draw them on a software canvas.
+     * @return True if the render thread should lock a hardware canvas.
      */
-    private int countSprites(Sprite[] group){
-        int count = 0;
-        for(Sprite sprite : group)
-            if (sprite != null) {
-                ++count;
-            }
-        return count;
+    public boolean usesHardwareCanvas() {
+        return !SOFTWARE_RENDERING && Build.VERSION.SDK_INT >= Build.VERSION_CODES.Q;
     }
 
     /**
-     * Checks if a sprite group has won.
-     * Uses countSprites() to count sprites in each group.
-     * If a group has all the sprites (groupSize * 3), it is the winner.
-     * In this case it stops the thread and goes to GameOver.java Activity.
+     * Copies the current state of the world into a free frame and hands it to the render thread.
+     * Called on the simulation thread, never waits for drawing.
+     */
+    public void publishFrame() {
+        long start = metrics != null ? System.nanoTime() : 0;
+        RenderFrame frame = frames.getWriteBuffer();
+        world.writeFrame(frame, System.nanoTime());
+        if (densityWanted) {
+            frame.buildDensity();
+        }
+        frames.publish();
+        publishedTick = world.getTick();
+        if (metrics != null) {
+            metrics.record(Metrics.Phase.PUBLISH, System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Checks if a team has won.
+     * In this case it stops both threads and goes to GameOver.java Activity, closing this one.
+     * Called on the simulation thread, the activities are switched on the UI thread.
      */
     public void checkWinner(){
-        Sprite[][] spriteGroups = new Sprite[][]{rocks, papers, scissors};
-        for(Sprite[] group : spriteGroups){
-            if(countSprites(group) == groupSize*3) {
-                String winner = "Rock";
-                if (group == papers) {
-                    winner = "Paper";
+        Team winner = world.getWinner();
+        if (winner != null) {
+            closeReplay();
+            writeMetrics();
+            simulationThread.setRunning(false);
+            thread.setRunning(false);
+            final Intent intent = new Intent(getContext(), GameOver.class);
+            intent.putExtra("winner", winner.getDisplayName());
+            intent.putExtra("population", history.toArray());
+            post(new Runnable() {
+                @Override
+                public void run() {
+                    getContext().startActivity(intent);
+                    // the finished match is not kept on the back stack, so matches do not pile up
+                    if (getContext() instanceof Activity) {
+                        ((Activity) getContext()).finish();
+                    }
                 }
-                if (group == scissors) {
-                    winner = "Scissors";
-                }
-                thread.setRunning(false);
-                Intent intent = new Intent(getContext(), GameOver.class);
-                intent.putExtra("winner", winner);
-                getContext().startActivity(intent);
-            }
+            });
+        }
+    }
+
+    /**
+     * Ends the replay at the current tick. Called on the simulation thread when the match is won,
+     * or after both threads stopped.
+     */
+    private void closeReplay() {
+        if (replay == null) {
+            return;
+        }
+        try {
+            replay.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Writes the metrics of the match as JSON to the app's files directory, if instrumentation is on.
+     * Called on the simulation thread, so the file is never written on the UI thread and the ticks
+     * stand still while the metrics are copied.
+     */
+    private void writeMetrics() {
+        if (metrics == null) {
+            return;
+        }
+        metrics.setGc(getRuntimeStat("art.gc.gc-count"), getRuntimeStat("art.gc.gc-time"));
+        metrics.copyTo(dumpedMetrics);
+        dumpedTick = furthestTick;
+        try (Writer out = new OutputStreamWriter(
+                new FileOutputStream(new File(getContext().getFilesDir(), METRICS_FILE)), StandardCharsets.UTF_8)) {
+            dumpedMetrics.writeJson(out);
+        } catch (IOException e) {
+            e.printStackTrace();
         }
     }
 
@@ -173,21 +549,26 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback {
      * Draws score bars on the bottom of the canvas.
      * They represent the number of sprites in each group.
      * @param canvas    Canvas to draw the score bars on.
+     * @param frame     Frame to take the counts from.
      */
-    private void drawScoreBars(Canvas canvas){
+    private void drawScoreBars(Canvas canvas, RenderFrame frame){
         float barResolution = (float) screenWidth/(groupSize*3);
-        float rocksBar = barResolution * countSprites(rocks);
-        float papersBar = barResolution * countSprites(papers);
-        paint.setColor(Color.parseColor("#A6D0DD"));
+        float rocksBar = barResolution * frame.count(Team.ROCK);
+        float papersBar = barResolution * frame.count(Team.PAPER);
+        paint.setColor(ROCK_BAR_COLOR);
         canvas.drawRect(0, bottomWall, rocksBar, screenHeight, paint);
-        paint.setColor(Color.parseColor("#FFD3B0"));
+        paint.setColor(PAPER_BAR_COLOR);
         canvas.drawRect(rocksBar, bottomWall, rocksBar+papersBar, screenHeight, paint);
-        paint.setColor(Color.parseColor("#FF6969"));
+        paint.setColor(SCISSORS_BAR_COLOR);
         canvas.drawRect(rocksBar+papersBar, bottomWall, screenWidth, screenHeight, paint);
     }
 
     /**
-     * Draws all sprites on the canvas.
+     * Draws the latest frame published by the simulation thread.
+     * Positions are interpolated by the time passed since the frame was published.
+     * All sprites are drawn in one batch instead of one drawBitmap call each, or as a density heatmap
+     * when they are too small on screen.
+     * Runs every frame on the render thread, so it must not allocate.
      * @param canvas Canvas to draw the sprites on.
      */
     @Override
@@ -196,13 +577,134 @@ public class GameView extends SurfaceView implements SurfaceHolder.Callback {
         if(canvas == null){
             return;
         }
-        canvas.drawColor(Color.parseColor("#FFFDF2"));
-        drawScoreBars(canvas);
-        for(Sprite sprite: allSprites) {
-            if(sprite != null){
-                sprite.draw(canvas);
+        RenderFrame frame = frames.acquireLatest();
+        float tickRate = TICK_RATE * governor.getTickRateScale();
+        float alpha = Math.min(1f, (System.nanoTime() - frame.getPublishNanos()) * tickRate / NANOS_PER_SECOND);
+
+        renderViewport.set(viewport);
+        densityWanted = densityBitmap != null
+                && spriteSize * renderViewport.getScale() < LOD_SPRITE_PIXELS * governor.getLodScale();
+        // the first frame after zooming out has no heatmap yet, its sprites are drawn instead
+        DensityField density = densityWanted ? frame.getDensity() : null;
+        if (density != null) {
+            canvas.drawColor(BACKGROUND_COLOR);
+            drawDensity(canvas, density);
+        } else {
+            spriteBatch.build(frame, alpha, renderViewport);
+            if (SOFTWARE_RENDERING) {
+                drawSoftware(canvas);
+            } else {
+                canvas.drawColor(BACKGROUND_COLOR);
+                drawBatch(canvas);
             }
         }
+        drawScoreBars(canvas, frame);
+        if (paused) {
+            canvas.drawColor(PAUSED_OVERLAY_COLOR);
+        }
+        if (metrics != null) {
+            drawMetrics(canvas);
+        }
     }
-}
 
+    /**
+     * Draws the metrics overlay: the tick, team counts and conversions, the garbage collector, and the
+     * median, 99th percentile and worst time of every phase. The text is rebuilt twice a second into
+     * reused buffers.
+     * @param canvas Canvas to draw the overlay on.
+     */
+    private void drawMetrics(Canvas canvas) {
+        long now = System.nanoTime();
+        if (now - metricsRefreshNanos >= METRICS_REFRESH_NANOS) {
+            metricsRefreshNanos = now;
+            // the runtime stats are strings, parsed only when the text changes
+            metrics.setGc(getRuntimeStat("art.gc.gc-count"), getRuntimeStat("art.gc.gc-time"));
+            metrics.copyTo(overlayMetrics);
+            metricsText.setLength(0);
+            metricsText.append("tick ").append(overlayMetrics.getTick());
+            for (int t = 0; t < overlayMetrics.getTeamCount(); t++) {
+                metricsText.append(t == 0 ? "  agents " : "/").append(overlayMetrics.count(t));
+            }
+            metricsText.append("  conversions ").append(overlayMetrics.getConversions());
+            setMetricsLine(0);
+            metricsText.append("gc ").append(overlayMetrics.getGcCount()).append(" in ").append(overlayMetrics.getGcMillis()).append(" ms")
+                    .append("  quality level ").append(governor.getLevel());
+            setMetricsLine(1);
+            for (Metrics.Phase phase : Metrics.Phase.values()) {
+                Histogram histogram = overlayMetrics.get(phase);
+                metricsText.append(phase.getKey()).append("  p50 ");
+                Metrics.appendMillis(metricsText, histogram.getValueAtPercentile(50)).append("  p99 ");
+                Metrics.appendMillis(metricsText, histogram.getValueAtPercentile(99)).append("  max ");
+                Metrics.appendMillis(metricsText, histogram.getMax()).append(" ms");
+                setMetricsLine(phase.ordinal() + 2);
+            }
+        }
+        float lineHeight = metricsPaint.getTextSize() * 1.25f;
+        for (int line = 0; line < metricsLines.length; line++) {
+            canvas.drawText(metricsLines[line], 0, metricsLengths[line], lineHeight / 2, lineHeight * (line + 1), metricsPaint);
+        }
+    }
+
+    /**
+     * @return A numeric statistic of the runtime, or 0 if the runtime does not have it.
+     */
+    private static long getRuntimeStat(String name) {
+        String value = Debug.getRuntimeStat(name);
+        return value != null ? Long.parseLong(value) : 0;
+    }
+
+    /**
+     * Moves the overlay text built so far into a line and clears it.
+     */
+    private void setMetricsLine(int line) {
+        int length = Math.min(metricsText.length(), METRICS_LINE_LENGTH);
+        metricsText.getChars(0, length, metricsLines[line], 0);
+        metricsLengths[line] = length;
+        metricsText.setLength(0);
+    }
+
+    /**
+     * Draws every sprite of the batch from the atlas shader,
+     * with one drawVertices call per {@link SpriteBatch#MAX_SPRITES_PER_DRAW} sprites.
+     * @param canvas Canvas to draw the sprites on.
+     */
+    private void drawBatch(Canvas canvas) {
+        int spriteCount = spriteBatch.getSpriteCount();
+        for (int first = 0; first < spriteCount; first += SpriteBatch.MAX_SPRITES_PER_DRAW) {
+            int sprites = Math.min(SpriteBatch.MAX_SPRITES_PER_DRAW, spriteCount - first);
+            int vertexOffset = first * SpriteBatch.VERTICES_PER_SPRITE * 2;
+            canvas.drawVertices(Canvas.VertexMode.TRIANGLES, sprites * SpriteBatch.VERTICES_PER_SPRITE * 2,
+                    spriteBatch.getVertices(), vertexOffset, spriteBatch.getTexCoords(), vertexOffset,
+                    null, 0, spriteBatch.getIndices(), 0, sprites * SpriteBatch.INDICES_PER_SPRITE, spritePaint);
+        }
+    }
+
+    /**
+     * Level of detail: draws the density heatmap of the whole world as one filtered bitmap,
+     * placed and scaled by the viewport.
+     * @param canvas    Canvas to draw the heatmap on.
+     * @param density   Heatmap built for the frame.
+     */
+    private void drawDensity(Canvas canvas, DensityField density) {
+        int columns = density.getColumns();
+        int rows = density.getRows();
+        densityBitmap.setPixels(density.getPixels(), 0, columns, 0, 0, columns, rows);
+        float scale = renderViewport.getScale();
+        float left = -renderViewport.getLeft() * scale;
+        float top = -renderViewport.getTop() * scale;
+        float texelSize = density.getTexelSize() * scale;
+        densityTarget.set(left, top, left + columns * texelSize, top + rows * texelSize);
+        canvas.drawBitmap(densityBitmap, null, densityTarget, densityPaint);
+    }
+
+    /**
+     * CPU fallback: rasterizes the batch into a pixel buffer and draws it as a single bitmap.
+     * @param canvas Canvas to draw the sprites on.
+     */
+    private void drawSoftware(Canvas canvas) {
+        softwareRenderer.clear(BACKGROUND_COLOR);
+        softwareRenderer.draw(spriteBatch, atlasPixels, spriteSize * Team.count());
+        softwareFrame.setPixels(softwareRenderer.getPixels(), 0, screenWidth, 0, 0, screenWidth, bottomWall);
+        canvas.drawBitmap(softwareFrame, 0, 0, null);
+    }
+}
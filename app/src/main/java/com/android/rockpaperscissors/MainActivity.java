@@ -18,8 +18,16 @@ import com.google.android.material.slider.Slider;
 
 
 public class MainActivity extends Activity {
+    /**
+     * Boolean extra that shows the instrumentation overlay in every match, for example with
+     * {@code adb shell am start -n com.android.rockpaperscissors/.MainActivity --ez metrics true}.
+     */
+    public static final String EXTRA_METRICS = "metrics";
+
     private int groupSize;
     private int speed;
+    private int arenaScale;
+    private GameView gameView;
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
@@ -31,12 +39,21 @@ public class MainActivity extends Activity {
 
         groupSize = 20;
         speed = 2;
+        arenaScale = 1;
 
         Button button = findViewById(R.id.startButton);
         button.setOnClickListener(new View.OnClickListener() {
             @Override
             public void onClick(View view) {
-                startGame();
+                startGame(getIntent().getBooleanExtra(EXTRA_METRICS, false));
+            }
+        });
+        // a long press starts a match with the instrumentation overlay
+        button.setOnLongClickListener(new View.OnLongClickListener() {
+            @Override
+            public boolean onLongClick(View view) {
+                startGame(true);
+                return true;
             }
         });
 
@@ -60,6 +77,16 @@ public class MainActivity extends Activity {
             }
         });
 
+        Slider arenaSlider = findViewById(R.id.arenaSlider);
+        TextView arenaNumber = findViewById(R.id.arenaNumber);
+        arenaSlider.addOnChangeListener(new Slider.OnChangeListener() {
+            @Override
+            public void onValueChange(@NonNull Slider slider, float value, boolean fromUser) {
+                arenaScale = (int) value;
+                arenaNumber.setText(String.valueOf((int) value));
+            }
+        });
+
         ImageView rotatingImage = findViewById(R.id.rotatingImage);
 
         RotateAnimation anim = new RotateAnimation(
@@ -78,8 +105,14 @@ public class MainActivity extends Activity {
     }
 
     @Override
-    public void onBackPressed() {}
-    public void startGame(){
-        setContentView(new GameView(this, groupSize, speed));
+    public void onBackPressed() {
+        if (gameView != null) {
+            gameView.onBackPressed();
+        }
+    }
+
+    public void startGame(boolean showMetrics){
+        gameView = new GameView(this, groupSize, speed, arenaScale, showMetrics);
+        setContentView(gameView);
     }
 }
\ No newline at end of file
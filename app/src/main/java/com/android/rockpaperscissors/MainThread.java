@@ -3,34 +3,64 @@ package com.android.rockpaperscissors;
 import android.graphics.Canvas;
 import android.view.SurfaceHolder;
 
+import com.android.rockpaperscissors.engine.Metrics;
+import com.android.rockpaperscissors.engine.QualityGovernor;
+
+/**
+ * Render thread. Draws the latest frame published by the {@link SimulationThread}.
+ */
 public class MainThread extends Thread {
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+
     private final SurfaceHolder surfaceHolder;
     private final GameView gameView;
-    private  boolean running;
+    private final long frameNanos;
+    private volatile boolean running;
     public static Canvas canvas;
 
-    public MainThread(SurfaceHolder surfaceHolder, GameView gameView) {
-        super();
+    /**
+     * Create the render loop.
+     * @param surfaceHolder holder of the surface to draw on.
+     * @param gameView      view that is drawn.
+     * @param frameRate     maximum frames drawn per second, limits CPU and battery use.
+     */
+    public MainThread(SurfaceHolder surfaceHolder, GameView gameView, int frameRate) {
+        super("Render");
         this.surfaceHolder = surfaceHolder;
         this.gameView = gameView;
+        frameNanos = 1_000_000_000L / frameRate;
     }
 
     public void setRunning(boolean isRunning) {
         running = isRunning;
     }
 
+    /**
+     * Render loop. Never waits for the simulation, it draws whatever frame was published last.
+     * The loop sleeps for the rest of the frame so it never draws faster than the frame rate.
+     * Drawing is timed for the quality governor, which is updated once per frame. With instrumentation
+     * on, locking the canvas, posting and the whole frame are timed as well.
+     */
     @Override
     public void run() {
+        Metrics metrics = gameView.getMetrics();
+        QualityGovernor governor = gameView.getGovernor();
+        long previousFrameStart = 0;
         while (running) {
+            long frameStart = System.nanoTime();
+            long locked = 0, drawn = 0;
             canvas = null;
 
             try {
-                canvas = this.surfaceHolder.lockCanvas();
+                canvas = this.gameView.usesHardwareCanvas()
+                        ? this.surfaceHolder.lockHardwareCanvas()
+                        : this.surfaceHolder.lockCanvas();
+                locked = System.nanoTime();
                 synchronized (surfaceHolder) {
-                    this.gameView.checkWinner();
-                    this.gameView.updateSprites();
                     this.gameView.draw(canvas);
                 }
+                drawn = System.nanoTime();
+                governor.recordDraw(drawn - locked);
             }
             finally {
                 if (canvas != null) {
@@ -39,9 +69,34 @@ public class MainThread extends Thread {
                     }
                     catch (Exception e) {e.printStackTrace();}
                 }
+            }
 
-
+            governor.update();
+            if (metrics != null && drawn != 0) {
+                metrics.record(Metrics.Phase.LOCK_CANVAS, locked - frameStart);
+                metrics.record(Metrics.Phase.DRAW, drawn - locked);
+                metrics.record(Metrics.Phase.POST, System.nanoTime() - drawn);
+                if (previousFrameStart != 0) {
+                    metrics.record(Metrics.Phase.FRAME, frameStart - previousFrameStart);
+                }
+                previousFrameStart = frameStart;
             }
+            sleepUntil(frameStart + frameNanos);
+        }
+    }
+
+    /**
+     * Sleeps until the given System.nanoTime() value, if it is in the future.
+     */
+    private void sleepUntil(long wakeUpTime) {
+        long remaining = wakeUpTime - System.nanoTime();
+        if (remaining <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(remaining / NANOS_PER_MILLI, (int) (remaining % NANOS_PER_MILLI));
+        } catch (InterruptedException e) {
+            e.printStackTrace();
         }
     }
 }
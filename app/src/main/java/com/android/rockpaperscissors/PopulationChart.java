@@ -0,0 +1,91 @@
+package com.android.rockpaperscissors;
+
+import android.content.Context;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Path;
+import android.util.AttributeSet;
+import android.view.View;
+
+import androidx.core.content.ContextCompat;
+
+import com.android.rockpaperscissors.engine.PopulationHistory;
+import com.android.rockpaperscissors.engine.Team;
+
+/**
+ * Line chart of every team's population over a finished match, drawn from the array written by
+ * {@link PopulationHistory#toArray()}. Time runs from left to right over the whole match, and the
+ * height of the chart is every agent of the match.
+ */
+public class PopulationChart extends View {
+
+    private static final float LINE_WIDTH_DP = 3;
+
+    private final Paint linePaint;
+    private final Paint axisPaint;
+    private final int[] teamColors;
+    private final Path path = new Path();
+    private int[] history;
+
+    public PopulationChart(Context context, AttributeSet attrs) {
+        super(context, attrs);
+        float density = context.getResources().getDisplayMetrics().density;
+        linePaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        linePaint.setStyle(Paint.Style.STROKE);
+        linePaint.setStrokeWidth(LINE_WIDTH_DP * density);
+        axisPaint = new Paint(Paint.ANTI_ALIAS_FLAG);
+        axisPaint.setColor(ContextCompat.getColor(context, R.color.darkBlue));
+        axisPaint.setStrokeWidth(density);
+        teamColors = new int[Team.count()];
+        teamColors[Team.ROCK.ordinal()] = ContextCompat.getColor(context, R.color.rock);
+        teamColors[Team.PAPER.ordinal()] = ContextCompat.getColor(context, R.color.paper);
+        teamColors[Team.SCISSORS.ordinal()] = ContextCompat.getColor(context, R.color.scissors);
+    }
+
+    /**
+     * Sets the match to draw.
+     * @param history   array written by {@link PopulationHistory#toArray()}.
+     */
+    public void setHistory(int[] history) {
+        this.history = history;
+        invalidate();
+    }
+
+    @Override
+    protected void onDraw(Canvas canvas) {
+        super.onDraw(canvas);
+        int width = getWidth();
+        int height = getHeight();
+        canvas.drawLine(0, height, width, height, axisPaint);
+        canvas.drawLine(0, 0, 0, height, axisPaint);
+        if (history == null || PopulationHistory.getPointCount(history) < 2) {
+            return;
+        }
+
+        int points = PopulationHistory.getPointCount(history);
+        int teams = PopulationHistory.getTeamCount(history);
+        int population = 0;
+        for (int t = 0; t < teams; t++) {
+            population += PopulationHistory.getCount(history, 0, t);
+        }
+        float tickScale = (float) width / PopulationHistory.getTick(history, points - 1);
+        // lines at the very top or bottom are not cut in half
+        float inset = linePaint.getStrokeWidth() / 2;
+        float countScale = (height - 2 * inset) / population;
+        // only the teams with a color are drawn
+        for (int t = 0; t < Math.min(teams, teamColors.length); t++) {
+            path.reset();
+            for (int p = 0; p < points; p++) {
+                float x = PopulationHistory.getTick(history, p) * tickScale;
+                float y = height - inset - PopulationHistory.getCount(history, p, t) * countScale;
+                if (p == 0) {
+                    path.moveTo(x, y);
+                } else {
+                    path.lineTo(x, y);
+                }
+            }
+            linePaint.setColor(teamColors[t]);
+            canvas.drawPath(path, linePaint);
+        }
+    }
+}
@@ -0,0 +1,81 @@
+package com.android.rockpaperscissors;
+
+import com.android.rockpaperscissors.engine.FixedTimestep;
+
+/**
+ * Runs the simulation on its own thread, independent of drawing.
+ * After every batch of ticks the latest state is published to the render thread,
+ * so a slow frame never holds up the simulation and a slow tick never holds up a frame.
+ */
+public class SimulationThread extends Thread {
+    // ticks to catch up at once before the simulation is slowed down instead
+    private static final int MAX_CATCH_UP_STEPS = 5;
+    private static final long NANOS_PER_MILLI = 1_000_000L;
+    // how often a paused match checks for scrubbing
+    private static final long PAUSED_POLL_MILLIS = 16;
+
+    private final GameView gameView;
+    private final FixedTimestep timestep;
+    private volatile boolean running;
+
+    /**
+     * Create the simulation loop.
+     * @param gameView  view that owns the world.
+     * @param tickRate  simulation ticks per second.
+     */
+    public SimulationThread(GameView gameView, int tickRate) {
+        super("Simulation");
+        this.gameView = gameView;
+        timestep = new FixedTimestep(tickRate, MAX_CATCH_UP_STEPS);
+    }
+
+    public void setRunning(boolean isRunning) {
+        running = isRunning;
+    }
+
+    /**
+     * Fixed timestep loop.
+     * The real time since the previous pass is turned into a whole number of ticks,
+     * then the thread sleeps until the next tick is due.
+     */
+    @Override
+    public void run() {
+        long previousTime = System.nanoTime();
+        while (running) {
+            long now = System.nanoTime();
+            if (gameView.isPaused()) {
+                // paused time is not caught up after resuming
+                previousTime = now;
+                gameView.applyScrub();
+                gameView.applyMetricsDump();
+                sleepMillis(PAUSED_POLL_MILLIS);
+                continue;
+            }
+            // a governor under load plays the match slower instead of making ticks longer
+            int steps = timestep.advance((long) ((now - previousTime) * gameView.getGovernor().getTickRateScale()));
+            previousTime = now;
+
+            for (int i = 0; i < steps && running; i++) {
+                gameView.updateSprites(timestep.getStepSeconds());
+            }
+            if (steps > 0) {
+                gameView.publishFrame();
+            }
+
+            long remaining = timestep.getNanosUntilNextStep();
+            try {
+                Thread.sleep(remaining / NANOS_PER_MILLI, (int) (remaining % NANOS_PER_MILLI));
+            } catch (InterruptedException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private static void sleepMillis(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.android.rockpaperscissors;
+
+import android.content.Context;
+import android.content.res.Resources;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.graphics.Canvas;
+import android.graphics.Paint;
+import android.graphics.Rect;
+import android.graphics.RectF;
+import android.util.LruCache;
+
+import com.android.rockpaperscissors.engine.Team;
+
+/**
+ * Sprite images shared by every match of the process, so starting a match does not decode and
+ * scale the drawables again. The drawables are decoded once, and the sprite atlases scaled from them
+ * are kept in a least recently used cache keyed by sprite size. The cache holds at most
+ * {@link #BUDGET_SHARE} of the heap, and atlases pushed out of it are recycled.
+ * <p>
+ * An atlas is only pushed out when an atlas of another size is requested. Only one match runs at a
+ * time, so the atlas of the running match is always the most recently used one and is never recycled.
+ */
+public final class SpriteCache {
+
+    // share of the heap for atlases, the atlas of the smallest group size on a large screen takes about 2 MB
+    private static final int BUDGET_SHARE = 16;
+
+    private static SpriteCache instance;
+
+    private final Resources resources;
+    // the drawables of every team, indexed by Team ordinal, decoded on the first atlas
+    private Bitmap[] images;
+    private final LruCache<Integer, Bitmap> atlases;
+
+    private SpriteCache(Resources resources, int budgetBytes) {
+        this.resources = resources;
+        atlases = new LruCache<Integer, Bitmap>(budgetBytes) {
+            @Override
+            protected int sizeOf(Integer spriteSize, Bitmap atlas) {
+                return atlas.getByteCount();
+            }
+
+            @Override
+            protected void entryRemoved(boolean evicted, Integer spriteSize, Bitmap oldAtlas, Bitmap newAtlas) {
+                if (evicted) {
+                    oldAtlas.recycle();
+                }
+            }
+        };
+    }
+
+    /**
+     * @return The cache of the process, created on the first call.
+     */
+    public static synchronized SpriteCache get(Context context) {
+        if (instance == null) {
+            long budget = Math.min(Integer.MAX_VALUE, Runtime.getRuntime().maxMemory() / BUDGET_SHARE);
+            instance = new SpriteCache(context.getApplicationContext().getResources(), (int) budget);
+        }
+        return instance;
+    }
+
+    /**
+     * Every team's sprite side by side in one bitmap, in Team ordinal order, so all sprites can be
+     * drawn in one batch. The atlas is shared and must not be changed or recycled by the caller.
+     * @param spriteSize    width and height of a sprite in pixels.
+     * @return              Atlas of spriteSize times the number of teams by spriteSize pixels.
+     */
+    public synchronized Bitmap getAtlas(int spriteSize) {
+        Bitmap atlas = atlases.get(spriteSize);
+        if (atlas != null) {
+            return atlas;
+        }
+        atlas = createAtlas(spriteSize);
+        // an atlas over the whole budget would be recycled right away, so it is only kept by its match
+        if (atlas.getByteCount() <= atlases.maxSize()) {
+            atlases.put(spriteSize, atlas);
+        }
+        return atlas;
+    }
+
+    /**
+     * Scales every team's drawable straight into its place in a new atlas.
+     */
+    private Bitmap createAtlas(int spriteSize) {
+        if (images == null) {
+            images = new Bitmap[Team.count()];
+            images[Team.ROCK.ordinal()] = BitmapFactory.decodeResource(resources, R.drawable.rock);
+            images[Team.PAPER.ordinal()] = BitmapFactory.decodeResource(resources, R.drawable.paper);
+            images[Team.SCISSORS.ordinal()] = BitmapFactory.decodeResource(resources, R.drawable.scissors);
+        }
+        Bitmap atlas = Bitmap.createBitmap(spriteSize * Team.count(), spriteSize, Bitmap.Config.ARGB_8888);
+        Canvas canvas = new Canvas(atlas);
+        Paint filter = new Paint(Paint.FILTER_BITMAP_FLAG);
+        Rect source = new Rect();
+        RectF target = new RectF();
+        for (int team = 0; team < Team.count(); team++) {
+            Bitmap image = images[team];
+            target.set(team * spriteSize, 0, (team + 1) * spriteSize, spriteSize);
+            source.set(0, 0, image.getWidth(), image.getHeight());
+            canvas.drawBitmap(image, source, target, filter);
+        }
+        return atlas;
+    }
+}
@@ -0,0 +1,18 @@
+plugins {
+    id("application")
+}
+
+java {
+    sourceCompatibility = JavaVersion.VERSION_1_8
+    targetCompatibility = JavaVersion.VERSION_1_8
+}
+
+application {
+    mainClass.set("com.android.rockpaperscissors.batch.BatchRunner")
+}
+
+dependencies {
+
+    implementation(project(":engine"))
+    testImplementation("junit:junit:4.13.2")
+}
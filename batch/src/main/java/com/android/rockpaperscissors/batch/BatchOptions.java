@@ -0,0 +1,114 @@
+package com.android.rockpaperscissors.batch;
+
+import com.android.rockpaperscissors.engine.SpawnStrategy;
+import com.android.rockpaperscissors.engine.Team;
+import com.android.rockpaperscissors.engine.World;
+
+import java.util.Locale;
+
+/**
+ * Settings of a batch run, parsed from the command line.
+ */
+public class BatchOptions {
+
+    static final String USAGE = "usage: BatchRunner [--seeds FIRST-LAST] [--group-size N] [--speed N]"
+            + " [--width PX] [--height PX] [--threads N] [--sample-interval TICKS] [--max-ticks TICKS]"
+            + " [--spawn STRATEGY[,STRATEGY,STRATEGY]] [--out PREFIX]";
+
+    long firstSeed = 0;
+    long lastSeed = 999;
+    int groupSize = 20;
+    int speed = 2;
+    // the arena of a 1080x2160 phone above the score bars
+    int width = 1080;
+    int height = 2016;
+    int threads = Runtime.getRuntime().availableProcessors();
+    // one population sample per simulated second
+    int sampleInterval = World.TICK_RATE;
+    // one simulated hour
+    long maxTicks = 60L * 60 * World.TICK_RATE;
+    // spawn strategy of every team, indexed by Team ordinal
+    SpawnStrategy[] spawn = World.uniformSpawn();
+    String out = "matches";
+
+    /**
+     * Parses {@code --name value} pairs. Options that are not given keep their defaults.
+     * @param args  command line arguments.
+     * @return      The parsed options.
+     * @throws IllegalArgumentException if an option is unknown, has no value or is out of range.
+     */
+    public static BatchOptions parse(String[] args) {
+        BatchOptions options = new BatchOptions();
+        for (int i = 0; i < args.length; i += 2) {
+            if (i + 1 >= args.length) {
+                throw new IllegalArgumentException("missing value for " + args[i]);
+            }
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--seeds":
+                    int dash = value.indexOf('-', 1);
+                    options.firstSeed = Long.parseLong(dash < 0 ? value : value.substring(0, dash));
+                    options.lastSeed = dash < 0 ? options.firstSeed : Long.parseLong(value.substring(dash + 1));
+                    break;
+                case "--group-size":
+                    options.groupSize = Integer.parseInt(value);
+                    break;
+                case "--speed":
+                    options.speed = Integer.parseInt(value);
+                    break;
+                case "--width":
+                    options.width = Integer.parseInt(value);
+                    break;
+                case "--height":
+                    options.height = Integer.parseInt(value);
+                    break;
+                case "--threads":
+                    options.threads = Integer.parseInt(value);
+                    break;
+                case "--sample-interval":
+                    options.sampleInterval = Integer.parseInt(value);
+                    break;
+                case "--max-ticks":
+                    options.maxTicks = Long.parseLong(value);
+                    break;
+                case "--spawn":
+                    options.spawn = parseSpawn(value);
+                    break;
+                case "--out":
+                    options.out = value;
+                    break;
+                default:
+                    throw new IllegalArgumentException("unknown option " + args[i]);
+            }
+        }
+        if (options.lastSeed < options.firstSeed || options.groupSize <= 0 || options.speed <= 0
+                || options.width <= 0 || options.height <= 0 || options.threads <= 0
+                || options.sampleInterval <= 0 || options.maxTicks <= 0) {
+            throw new IllegalArgumentException("options out of range");
+        }
+        return options;
+    }
+
+    /**
+     * Parses one strategy for every team, such as {@code corners}, or one per team separated by
+     * commas in Team ordinal order, such as {@code uniform,clustered,corners}.
+     */
+    private static SpawnStrategy[] parseSpawn(String value) {
+        String[] names = value.split(",");
+        if (names.length != 1 && names.length != Team.count()) {
+            throw new IllegalArgumentException("--spawn needs one strategy or one for each of the " + Team.count() + " teams");
+        }
+        SpawnStrategy[] strategies = new SpawnStrategy[Team.count()];
+        for (int t = 0; t < strategies.length; t++) {
+            strategies[t] = SpawnStrategy.valueOf(names[names.length == 1 ? 0 : t].trim().toUpperCase(Locale.ROOT));
+        }
+        return strategies;
+    }
+
+    /**
+     * @return Number of matches in the seed range.
+     */
+    public long getMatchCount() {
+        return lastSeed - firstSeed + 1;
+    }
+}
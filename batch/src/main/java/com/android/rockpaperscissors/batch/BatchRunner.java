@@ -0,0 +1,127 @@
+package com.android.rockpaperscissors.batch;
+
+import com.android.rockpaperscissors.engine.Team;
+
+import java.io.BufferedWriter;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Command line Monte Carlo runner: plays a range of seeds as headless matches on every core.
+ * <p>
+ * Every match runs on a single thread and matches run side by side, so the run scales with the
+ * number of cores without any locking inside the simulation. Results are written as soon as a
+ * match ends, and only a few matches per thread are in flight, so memory does not grow with the
+ * number of matches. Two CSV files are written:
+ * <ul>
+ *     <li>{@code PREFIX-matches.csv}: {@code seed,winner,ticks}, one row per match.</li>
+ *     <li>{@code PREFIX-populations.csv}: {@code seed,tick,rock,paper,scissors}, one row per population sample.</li>
+ * </ul>
+ * Rows are in the order the matches end, sort by seed for a stable order.
+ */
+public class BatchRunner {
+
+    // matches queued per worker, so a worker never waits for the writer to hand out the next seed
+    private static final int IN_FLIGHT_PER_THREAD = 2;
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        BatchOptions options;
+        try {
+            options = BatchOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(BatchOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+
+        try (Writer matches = open(options.out + "-matches.csv");
+             Writer populations = open(options.out + "-populations.csv")) {
+            long start = System.nanoTime();
+            run(options, matches, populations);
+            double seconds = (System.nanoTime() - start) / 1e9;
+            System.out.printf("%d matches on %d threads in %.1f s (%.1f matches/s)%n",
+                    options.getMatchCount(), options.threads, seconds, options.getMatchCount() / seconds);
+        }
+    }
+
+    private static Writer open(String path) throws IOException {
+        return new BufferedWriter(new OutputStreamWriter(new FileOutputStream(path), StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Plays every seed of the options and streams the results.
+     * @param options       matches to play.
+     * @param matches       receives the match rows, with a header.
+     * @param populations   receives the population rows, with a header.
+     * @throws IOException          if writing fails.
+     * @throws InterruptedException if the calling thread is interrupted while waiting for a match.
+     */
+    public static void run(final BatchOptions options, Writer matches, Writer populations)
+            throws IOException, InterruptedException {
+        matches.write("seed,winner,ticks\n");
+        populations.write("seed,tick");
+        for (int t = 0; t < Team.count(); t++) {
+            populations.write(',');
+            populations.write(Team.of(t).name().toLowerCase(Locale.ROOT));
+        }
+        populations.write('\n');
+
+        ExecutorService executor = Executors.newFixedThreadPool(options.threads);
+        CompletionService<Match> completion = new ExecutorCompletionService<>(executor);
+        int window = options.threads * IN_FLIGHT_PER_THREAD;
+        try {
+            long nextSeed = options.firstSeed;
+            long unsubmitted = options.getMatchCount();
+            int inFlight = 0;
+            while (unsubmitted > 0 || inFlight > 0) {
+                while (unsubmitted > 0 && inFlight < window) {
+                    final long seed = nextSeed++;
+                    completion.submit(new Callable<Match>() {
+                        @Override
+                        public Match call() {
+                            return Match.play(seed, options);
+                        }
+                    });
+                    unsubmitted--;
+                    inFlight++;
+                }
+                Match match = completion.take().get();
+                inFlight--;
+                write(match, matches, populations);
+            }
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("match failed", e.getCause());
+        } finally {
+            executor.shutdownNow();
+        }
+        matches.flush();
+        populations.flush();
+    }
+
+    private static void write(Match match, Writer matches, Writer populations) throws IOException {
+        Team winner = match.getWinner();
+        matches.write(match.getSeed() + "," + (winner == null ? "" : winner.getDisplayName()) + "," + match.getTicks() + "\n");
+
+        StringBuilder row = new StringBuilder();
+        for (int sample = 0; sample < match.getSamples(); sample++) {
+            row.setLength(0);
+            row.append(match.getSeed()).append(',').append(match.getSampleTick(sample));
+            for (int t = 0; t < Team.count(); t++) {
+                row.append(',').append(match.getPopulation(sample, Team.of(t)));
+            }
+            row.append('\n');
+            populations.append(row);
+        }
+    }
+}
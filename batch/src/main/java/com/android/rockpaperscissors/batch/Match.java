@@ -0,0 +1,104 @@
+package com.android.rockpaperscissors.batch;
+
+import com.android.rockpaperscissors.engine.Team;
+import com.android.rockpaperscissors.engine.World;
+
+import java.util.Arrays;
+
+/**
+ * A single headless match, played from spawn until one team has every agent.
+ * The population of every team is sampled at a fixed tick interval while it runs.
+ */
+public class Match {
+
+    private final long seed;
+    private final Team winner;
+    private final long ticks;
+    private final int sampleInterval;
+    private final int samples;
+    // sample s of team t is at [s * Team.count() + t]
+    private final int[] populations;
+
+    private Match(long seed, Team winner, long ticks, int sampleInterval, int samples, int[] populations) {
+        this.seed = seed;
+        this.winner = winner;
+        this.ticks = ticks;
+        this.sampleInterval = sampleInterval;
+        this.samples = samples;
+        this.populations = populations;
+    }
+
+    /**
+     * Plays a match on the calling thread.
+     * @param seed      seed of the match, the same seed plays the same match.
+     * @param options   rules and arena of the match.
+     * @return          The finished match.
+     */
+    public static Match play(long seed, BatchOptions options) {
+        int agentSize = (int) Math.sqrt(((float) options.width * options.height) / (options.groupSize * Team.count())) / 2;
+        World world = new World(options.width, options.height, options.groupSize, options.speed, agentSize, seed,
+                options.spawn);
+
+        int[] populations = new int[Team.count() * 64];
+        int samples = 0;
+        while (true) {
+            boolean finished = world.getWinner() != null || world.getTick() >= options.maxTicks;
+            if (finished || world.getTick() % options.sampleInterval == 0) {
+                if ((samples + 1) * Team.count() > populations.length) {
+                    populations = Arrays.copyOf(populations, populations.length * 2);
+                }
+                for (int t = 0; t < Team.count(); t++) {
+                    populations[samples * Team.count() + t] = world.count(Team.of(t));
+                }
+                samples++;
+            }
+            if (finished) {
+                break;
+            }
+            world.step(1f / World.TICK_RATE);
+        }
+        return new Match(seed, world.getWinner(), world.getTick(), options.sampleInterval, samples, populations);
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * @return The winning team, or null if the match hit the tick limit first.
+     */
+    public Team getWinner() {
+        return winner;
+    }
+
+    /**
+     * @return Number of ticks played.
+     */
+    public long getTicks() {
+        return ticks;
+    }
+
+    /**
+     * @return Number of population samples. The last sample is always taken at the final tick.
+     */
+    public int getSamples() {
+        return samples;
+    }
+
+    /**
+     * @param sample    index of the sample.
+     * @param team      team to count.
+     * @return          Number of agents in the team at the time of the sample.
+     */
+    public int getPopulation(int sample, Team team) {
+        return populations[sample * Team.count() + team.ordinal()];
+    }
+
+    /**
+     * @param sample    index of the sample.
+     * @return          Tick of the sample.
+     */
+    public long getSampleTick(int sample) {
+        return sample == samples - 1 ? ticks : (long) sample * sampleInterval;
+    }
+}
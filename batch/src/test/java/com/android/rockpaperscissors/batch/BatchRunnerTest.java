@@ -0,0 +1,88 @@
+package com.android.rockpaperscissors.batch;
+
+import com.android.rockpaperscissors.engine.SpawnStrategy;
+import com.android.rockpaperscissors.engine.Team;
+
+import org.junit.Test;
+
+import java.io.StringWriter;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Plays small batches of matches and checks the CSV output.
+ */
+public class BatchRunnerTest {
+
+    private static BatchOptions smallMatches(String seeds, int threads) {
+        return BatchOptions.parse(new String[]{
+                "--seeds", seeds, "--group-size", "5", "--threads", String.valueOf(threads),
+                "--sample-interval", "30", "--max-ticks", "100000"});
+    }
+
+    @Test
+    public void run_writesEveryMatchOnce() throws Exception {
+        StringWriter matches = new StringWriter();
+        StringWriter populations = new StringWriter();
+        BatchRunner.run(smallMatches("10-29", 3), matches, populations);
+
+        String[] rows = matches.toString().split("\n");
+        assertEquals("seed,winner,ticks", rows[0]);
+        assertEquals(21, rows.length);
+        boolean[] seen = new boolean[20];
+        for (int i = 1; i < rows.length; i++) {
+            String[] columns = rows[i].split(",");
+            int seed = Integer.parseInt(columns[0]);
+            assertFalse(seen[seed - 10]);
+            seen[seed - 10] = true;
+        }
+        assertEquals("seed,tick,rock,paper,scissors", populations.toString().split("\n")[0]);
+    }
+
+    @Test
+    public void run_matchesDoNotDependOnTheThreadCount() throws Exception {
+        StringWriter sequential = new StringWriter();
+        StringWriter parallel = new StringWriter();
+        BatchRunner.run(smallMatches("0-7", 1), sequential, new StringWriter());
+        BatchRunner.run(smallMatches("0-7", 4), parallel, new StringWriter());
+
+        String[] sequentialRows = sequential.toString().split("\n");
+        String[] parallelRows = parallel.toString().split("\n");
+        Arrays.sort(sequentialRows);
+        Arrays.sort(parallelRows);
+        assertArrayEquals(sequentialRows, parallelRows);
+    }
+
+    @Test
+    public void play_samplesPopulationUntilTheEnd() {
+        BatchOptions options = smallMatches("3", 1);
+        Match match = Match.play(3, options);
+
+        assertNotNull(match.getWinner());
+        assertEquals(match.getTicks(), match.getSampleTick(match.getSamples() - 1));
+        assertEquals(0, match.getSampleTick(0));
+        for (int sample = 0; sample < match.getSamples(); sample++) {
+            int total = 0;
+            for (int t = 0; t < Team.count(); t++) {
+                total += match.getPopulation(sample, Team.of(t));
+            }
+            assertEquals(15, total);
+        }
+        assertEquals(15, match.getPopulation(match.getSamples() - 1, match.getWinner()));
+        assertEquals(5, match.getPopulation(0, Team.ROCK));
+    }
+
+    @Test
+    public void parse_readsSpawnStrategies() {
+        assertArrayEquals(new SpawnStrategy[]{SpawnStrategy.CORNERS, SpawnStrategy.CORNERS, SpawnStrategy.CORNERS},
+                BatchOptions.parse(new String[]{"--spawn", "corners"}).spawn);
+        assertArrayEquals(new SpawnStrategy[]{SpawnStrategy.UNIFORM, SpawnStrategy.CLUSTERED, SpawnStrategy.CORNERS},
+                BatchOptions.parse(new String[]{"--spawn", "uniform,clustered,corners"}).spawn);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parse_rejectsUnknownOptions() {
+        BatchOptions.parse(new String[]{"--teams", "4"});
+    }
+}
@@ -0,0 +1,39 @@
+package com.android.rockpaperscissors.engine;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * A fresh world for every measurement iteration, so small matches do not end halfway through a run.
+ * Group sizes up to 250 play on a phone sized arena like the app. Larger groups get a larger arena
+ * with the same density, so the agents keep the size they have at 250.
+ */
+@State(Scope.Thread)
+public class Arena {
+
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 2016;
+    private static final int SLIDER_MAX = 250;
+
+    @Param({"5", "50", "250", "10000", "100000"})
+    public int groupSize;
+
+    World world;
+    int width, height, agentSize;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        float scale = (float) Math.max(1, Math.sqrt((double) groupSize / SLIDER_MAX));
+        width = (int) (SCREEN_WIDTH * scale);
+        height = (int) (SCREEN_HEIGHT * scale);
+        agentSize = Math.max(2, (int) Math.sqrt(((float) width * height) / (groupSize * 3)) / 2);
+        world = new World(width, height, groupSize, 2, agentSize, 1);
+        // start from a match in progress rather than the uniform spawn
+        for (int tick = 0; tick < 10; tick++) {
+            world.step(1f / World.TICK_RATE);
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.android.rockpaperscissors.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of a full simulation tick against the number of threads of the read phase, on a large arena.
+ * One thread steps on the calling thread without a pool, like {@link StepBenchmark}. Thread counts
+ * above the cores of the machine only show the cost of the extra tasks.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class ParallelStepBenchmark {
+
+    /**
+     * A fresh world for every measurement iteration, stepped on a pool of {@code threads} workers.
+     */
+    @State(Scope.Thread)
+    public static class PooledArena {
+
+        @Param({"10000", "100000"})
+        public int groupSize;
+
+        @Param({"1", "2", "4", "8"})
+        public int threads;
+
+        World world;
+        private ForkJoinPool pool;
+
+        @Setup(Level.Trial)
+        public void startPool() {
+            pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        }
+
+        @Setup(Level.Iteration)
+        public void setUp() {
+            int width = 1080 * 4;
+            int height = 2016 * 4;
+            int agentSize = Math.max(2, (int) Math.sqrt(((float) width * height) / (groupSize * 3)) / 2);
+            world = new World(width, height, groupSize, 2, agentSize, 1);
+            world.setPool(pool);
+        }
+
+        @TearDown(Level.Trial)
+        public void stopPool() {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+    }
+
+    @Benchmark
+    public long step(PooledArena arena) {
+        arena.world.step(1f / World.TICK_RATE);
+        return arena.world.getTick();
+    }
+}
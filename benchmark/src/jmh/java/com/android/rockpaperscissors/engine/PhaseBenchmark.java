@@ -0,0 +1,223 @@
+package com.android.rockpaperscissors.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of the parts of a tick on their own.
+ * <ul>
+ *     <li>{@code readPhase}: steering of every agent, with the nearest hunter and prey lookups and wall avoidance.</li>
+ *     <li>{@code nearest}: the nearest hunter and prey lookups alone, one search of the team grid per agent.</li>
+ *     <li>{@code wallAvoidance}: the wall checks and wall avoidance of every agent alone.</li>
+ *     <li>{@code collisions}: the whole collision pass, the broad phase sweep with separation and eating
+ *     and the commit of the conversions.</li>
+ *     <li>{@code selfCollision}: the separation of every overlapping same team pair.</li>
+ *     <li>{@code eat}: the hit test and conversion queueing of every overlapping pair of different teams.</li>
+ *     <li>{@code winner}: the winner check and team counts read every frame.</li>
+ * </ul>
+ * Every benchmark except {@code nearest} calls the world's own code. The rest of the tick runs in
+ * per-invocation fixtures, so every invocation times a tick of a match in progress rather than the
+ * same tick again. JMH times every invocation on its own then, which adds a little to the scores of
+ * the smallest arenas.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PhaseBenchmark {
+
+    private static final float DT = 1f / World.TICK_RATE;
+
+    /**
+     * Spatial index and a copy of the positions of the arena's world, built outside the measurement.
+     */
+    @State(Scope.Thread)
+    public static class Positions {
+        SpatialGrid grid;
+        float[] xs, ys;
+        byte[] teams;
+        int agentCount;
+
+        @Setup(Level.Iteration)
+        public void setUp(Arena arena) {
+            World world = arena.world;
+            agentCount = world.getAgentCount();
+            xs = new float[agentCount];
+            ys = new float[agentCount];
+            teams = new byte[agentCount];
+            grid = new SpatialGrid(agentCount, arena.width, arena.height, arena.agentSize * 2, Team.count());
+            for (int i = 0; i < agentCount; i++) {
+                xs[i] = world.getX(i);
+                ys[i] = world.getY(i);
+                teams[i] = (byte) world.getTeamNumber(i);
+                grid.insert(i, teams[i], xs[i], ys[i]);
+            }
+        }
+    }
+
+    /**
+     * Finishes the step of every timed read phase.
+     */
+    @State(Scope.Thread)
+    public static class ReadPhase {
+        @TearDown(Level.Invocation)
+        public void finish(Arena arena) {
+            arena.world.writePhase();
+        }
+    }
+
+    /**
+     * Runs the read phase before every timed wall avoidance and the write phase after it. The wall
+     * avoidance runs twice in these ticks, which only changes the benchmark's own match.
+     */
+    @State(Scope.Thread)
+    public static class WallPhase {
+        @Setup(Level.Invocation)
+        public void start(Arena arena) {
+            arena.world.readPhase(DT);
+        }
+
+        @TearDown(Level.Invocation)
+        public void finish(Arena arena) {
+            arena.world.writePhase();
+        }
+    }
+
+    /**
+     * Runs the tick up to the collision pass before every timed pass and ends it after.
+     */
+    @State(Scope.Thread)
+    public static class CollisionPhase {
+        @Setup(Level.Invocation)
+        public void start(Arena arena) {
+            arena.world.readPhase(DT);
+            arena.world.prepareCollisions();
+        }
+
+        @TearDown(Level.Invocation)
+        public void finish(Arena arena) {
+            arena.world.finishStep();
+        }
+    }
+
+    /**
+     * Runs the tick up to the collision pass, and sorts the overlapping pairs the broad phase reports
+     * into same team pairs and pairs of different teams. After the timed pairs, only their
+     * conversions are committed, so {@code selfCollision} plays a match without eating and
+     * {@code eat} one without separation.
+     */
+    @State(Scope.Thread)
+    public static class CollisionPairs {
+        BroadPhase broadPhase;
+        float[] xs, ys;
+        int[] sameTeam = new int[64];
+        int[] otherTeams = new int[64];
+        int sameTeamSize, otherTeamsSize;
+        private World world;
+        private final BroadPhase.PairListener sorter = new BroadPhase.PairListener() {
+            @Override
+            public void onPair(int first, int second) {
+                if (world.getTeamNumber(first) == world.getTeamNumber(second)) {
+                    sameTeam = add(sameTeam, sameTeamSize, first, second);
+                    sameTeamSize += 2;
+                } else {
+                    otherTeams = add(otherTeams, otherTeamsSize, first, second);
+                    otherTeamsSize += 2;
+                }
+            }
+        };
+
+        @Setup(Level.Iteration)
+        public void setUp(Arena arena) {
+            world = arena.world;
+            broadPhase = new BroadPhase(world.getAgentCount());
+            xs = new float[world.getAgentCount()];
+            ys = new float[world.getAgentCount()];
+        }
+
+        @Setup(Level.Invocation)
+        public void start(Arena arena) {
+            world.readPhase(DT);
+            world.prepareCollisions();
+            for (int i = 0; i < world.getAgentCount(); i++) {
+                xs[i] = world.getX(i);
+                ys[i] = world.getY(i);
+            }
+            sameTeamSize = 0;
+            otherTeamsSize = 0;
+            broadPhase.findPairs(xs, ys, world.getAgentCount(), arena.agentSize, sorter);
+        }
+
+        @TearDown(Level.Invocation)
+        public void finish() {
+            world.commitConversions();
+            world.finishStep();
+        }
+
+        private static int[] add(int[] pairs, int size, int first, int second) {
+            if (size + 2 > pairs.length) {
+                pairs = Arrays.copyOf(pairs, pairs.length * 2);
+            }
+            pairs[size] = first;
+            pairs[size + 1] = second;
+            return pairs;
+        }
+    }
+
+    @Benchmark
+    public void readPhase(Arena arena, ReadPhase phase) {
+        arena.world.readPhase(DT);
+    }
+
+    @Benchmark
+    public void nearest(Positions positions, Blackhole blackhole) {
+        for (int i = 0; i < positions.agentCount; i++) {
+            int own = positions.teams[i];
+            blackhole.consume(positions.grid.nearestOfTeams(positions.xs[i], positions.ys[i], i,
+                    Dominance.CLASSIC.getHunterMask(own), Dominance.CLASSIC.getPreyMask(own)));
+        }
+    }
+
+    @Benchmark
+    public void wallAvoidance(Arena arena, WallPhase phase) {
+        arena.world.avoidWalls(0, arena.world.getAgentCount());
+    }
+
+    @Benchmark
+    public void collisions(Arena arena, CollisionPhase phase) {
+        arena.world.findCollisions();
+        arena.world.commitConversions();
+    }
+
+    @Benchmark
+    public void selfCollision(Arena arena, CollisionPairs pairs) {
+        for (int p = 0; p < pairs.sameTeamSize; p += 2) {
+            arena.world.collide(pairs.sameTeam[p], pairs.sameTeam[p + 1]);
+        }
+    }
+
+    @Benchmark
+    public void eat(Arena arena, CollisionPairs pairs) {
+        for (int p = 0; p < pairs.otherTeamsSize; p += 2) {
+            arena.world.collide(pairs.otherTeams[p], pairs.otherTeams[p + 1]);
+        }
+    }
+
+    @Benchmark
+    public void winner(Arena arena, Blackhole blackhole) {
+        World world = arena.world;
+        blackhole.consume(world.getWinner());
+        for (int t = 0; t < world.getTeamCount(); t++) {
+            blackhole.consume(world.count(t));
+        }
+    }
+}
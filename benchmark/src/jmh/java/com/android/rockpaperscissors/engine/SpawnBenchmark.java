@@ -0,0 +1,46 @@
+package com.android.rockpaperscissors.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Placing every agent of a new world apart with {@link Spawner}, with every team on the same strategy.
+ * The arena grows with the group size like {@link Arena}'s, so the agents keep the density of the app.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Thread)
+public class SpawnBenchmark {
+
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 2016;
+    private static final int SLIDER_MAX = 250;
+
+    @Param({"250", "33334"})
+    public int groupSize;
+
+    @Param({"UNIFORM", "CLUSTERED", "CORNERS"})
+    public SpawnStrategy strategy;
+
+    @Benchmark
+    public float[] spawn() {
+        float scale = (float) Math.max(1, Math.sqrt((double) groupSize / SLIDER_MAX));
+        int width = (int) (SCREEN_WIDTH * scale);
+        int height = (int) (SCREEN_HEIGHT * scale);
+        int agentSize = Math.max(2, (int) Math.sqrt(((float) width * height) / (groupSize * 3)) / 2);
+        SpawnStrategy[] strategies = new SpawnStrategy[Team.count()];
+        Arrays.fill(strategies, strategy);
+        float[] x = new float[groupSize * Team.count()];
+        float[] y = new float[x.length];
+        new Spawner(0, 0, width - agentSize, height - agentSize, agentSize, new Rng(1)).spawn(strategies, groupSize, x, y);
+        return x;
+    }
+}
@@ -0,0 +1,112 @@
+package com.android.rockpaperscissors.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Predator-prey steering of every agent of the arena, with the nearest hunter and prey found outside
+ * the measurement.
+ * <ul>
+ *     <li>{@code legacy}: the separate hunt and run in double precision, with Math.pow distances and
+ *     a square root before the run distance check.</li>
+ *     <li>{@code kernel}: {@link Steering#predatorPrey}, in float on squared distances.</li>
+ * </ul>
+ * Both start every call from the same positions, so the copy back is part of both scores.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class SteeringBenchmark {
+
+    /**
+     * Positions of the arena's world and the closest prey and hunter of every agent.
+     */
+    @State(Scope.Thread)
+    public static class Targets {
+        float[] startX, startY, x, y;
+        int[] prey, hunter;
+        float halfSize, step;
+        int agentCount;
+
+        @Setup(Level.Iteration)
+        public void setUp(Arena arena) {
+            World world = arena.world;
+            agentCount = world.getAgentCount();
+            startX = new float[agentCount];
+            startY = new float[agentCount];
+            SpatialGrid[] grids = new SpatialGrid[Team.count()];
+            for (int t = 0; t < Team.count(); t++) {
+                grids[t] = new SpatialGrid(agentCount, arena.width, arena.height, arena.agentSize * 2);
+            }
+            for (int i = 0; i < agentCount; i++) {
+                startX[i] = world.getX(i);
+                startY[i] = world.getY(i);
+                grids[world.getTeam(i).ordinal()].insert(i, startX[i], startY[i]);
+            }
+            prey = new int[agentCount];
+            hunter = new int[agentCount];
+            for (int i = 0; i < agentCount; i++) {
+                Team own = world.getTeam(i);
+                prey[i] = grids[own.prey().ordinal()].nearest(startX[i], startY[i], i);
+                hunter[i] = grids[own.hunter().ordinal()].nearest(startX[i], startY[i], i);
+            }
+            x = startX.clone();
+            y = startY.clone();
+            halfSize = arena.agentSize * 0.5f;
+            // a tick of 1 / TICK_RATE seconds moves an agent by its speed
+            step = world.getSpeed();
+        }
+
+        void reset() {
+            System.arraycopy(startX, 0, x, 0, agentCount);
+            System.arraycopy(startY, 0, y, 0, agentCount);
+        }
+    }
+
+    @Benchmark
+    public float[] legacy(Targets targets) {
+        targets.reset();
+        float[] x = targets.x;
+        float[] y = targets.y;
+        for (int i = 0; i < targets.agentCount; i++) {
+            int prey = targets.prey[i];
+            if (prey != Steering.NONE) {
+                double dX = (targets.startX[prey] + targets.halfSize - x[i]);
+                double dY = (targets.startY[prey] + targets.halfSize - y[i]);
+                double distance = Math.sqrt(Math.pow(dY, 2) + Math.pow(dX, 2));
+                x[i] += (dX / distance) * targets.step;
+                y[i] += (dY / distance) * targets.step;
+            }
+            int hunter = targets.hunter[i];
+            if (hunter == Steering.NONE) {
+                continue;
+            }
+            double dX = (targets.startX[hunter] + targets.halfSize - x[i]);
+            double dY = (targets.startY[hunter] + targets.halfSize - y[i]);
+            double distance = Math.sqrt(Math.pow(dY, 2) + Math.pow(dX, 2));
+            if (distance > 500) {
+                continue;
+            }
+            x[i] -= (dX / distance) * targets.step * 0.95;
+            y[i] -= (dY / distance) * targets.step * 0.95;
+        }
+        return x;
+    }
+
+    @Benchmark
+    public float[] kernel(Targets targets) {
+        targets.reset();
+        for (int i = 0; i < targets.agentCount; i++) {
+            Steering.predatorPrey(targets.x, targets.y, targets.startX, targets.startY,
+                    i, targets.prey[i], targets.hunter[i], targets.halfSize, targets.step);
+        }
+        return targets.x;
+    }
+}
@@ -0,0 +1,23 @@
+package com.android.rockpaperscissors.engine;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time of a full simulation tick on a single thread: read phase, spatial index updates,
+ * collisions and conversions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class StepBenchmark {
+
+    @Benchmark
+    public long step(Arena arena) {
+        arena.world.step(1f / World.TICK_RATE);
+        return arena.world.getTick();
+    }
+}
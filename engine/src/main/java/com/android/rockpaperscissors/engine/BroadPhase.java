@@ -0,0 +1,130 @@
+package com.android.rockpaperscissors.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+/**
+ * Sort-and-sweep broad phase over the X axis.
+ * Finds every pair of entries whose X and Y distances are both within a reach,
+ * reporting each pair exactly once per call.
+ * The sort order is kept between calls, so the insertion sort only has to fix up
+ * the few entries that changed order since the previous tick.
+ */
+public class BroadPhase {
+
+    /**
+     * Receives the candidate pairs found by {@link #findPairs}.
+     */
+    public interface PairListener {
+        /**
+         * Called once for each pair of entries within reach.
+         * @param first     lower id of the pair.
+         * @param second    higher id of the pair.
+         */
+        void onPair(int first, int second);
+    }
+
+    private final int[] order;
+    private int count;
+
+    /**
+     * Create a broad phase.
+     * @param capacity  maximum number of entries (ids are in the range 0..capacity-1).
+     */
+    public BroadPhase(int capacity) {
+        order = new int[capacity];
+    }
+
+    /**
+     * Reports all pairs of entries where both |dx| and |dy| are smaller than or equal to the reach.
+     * @param xs        X coordinates, indexed by id.
+     * @param ys        Y coordinates, indexed by id.
+     * @param count     number of entries, ids 0..count-1 are used.
+     * @param reach     maximum distance on each axis.
+     * @param listener  receives the pairs.
+     */
+    public void findPairs(float[] xs, float[] ys, int count, float reach, PairListener listener) {
+        if (count != this.count) {
+            this.count = count;
+            initialSort(xs);
+        } else {
+            sortByX(xs);
+        }
+
+        for (int i = 0; i < count; i++) {
+            int first = order[i];
+            float x = xs[first];
+            float y = ys[first];
+            for (int j = i + 1; j < count; j++) {
+                int second = order[j];
+                // sorted by X, so nothing after this entry can be within reach
+                if (xs[second] - x > reach) {
+                    break;
+                }
+                if (Math.abs(ys[second] - y) <= reach) {
+                    listener.onPair(Math.min(first, second), Math.max(first, second));
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the sort order, so a restored world sweeps the pairs in the same order.
+     * @param out   buffer to write {@code 4 * count} bytes to.
+     * @param count number of entries of the next call to {@link #findPairs}.
+     */
+    void saveOrder(ByteBuffer out, int count) {
+        for (int i = 0; i < count; i++) {
+            // -1 first marks an order that was never sorted for this count
+            out.putInt(count == this.count ? order[i] : -1);
+        }
+    }
+
+    /**
+     * Reads a sort order written by {@link #saveOrder(ByteBuffer, int)}.
+     * @param in    buffer to read from.
+     * @param count number of entries the order was saved with.
+     */
+    void loadOrder(ByteBuffer in, int count) {
+        for (int i = 0; i < count; i++) {
+            order[i] = in.getInt();
+        }
+        this.count = count > 0 && order[0] == -1 ? 0 : count;
+    }
+
+    /**
+     * Builds the order from scratch. The first positions are not sorted at all, and the insertion
+     * sort would take quadratic time on them, so every entry is sorted by a key that packs its
+     * X coordinate above its id. Allocates, but only when the number of entries changes.
+     */
+    private void initialSort(float[] xs) {
+        long[] keys = new long[count];
+        for (int i = 0; i < count; i++) {
+            int bits = Float.floatToIntBits(xs[i]);
+            // flip the bits so that the signed int order matches the float order
+            bits ^= (bits >> 31) & Integer.MAX_VALUE;
+            keys[i] = ((long) bits << 32) | i;
+        }
+        Arrays.sort(keys);
+        for (int i = 0; i < count; i++) {
+            order[i] = (int) keys[i];
+        }
+    }
+
+    /**
+     * Insertion sort of the order by X coordinate.
+     * Runs in close to linear time because agents only move a little between ticks.
+     */
+    private void sortByX(float[] xs) {
+        for (int i = 1; i < count; i++) {
+            int id = order[i];
+            float x = xs[id];
+            int j = i - 1;
+            while (j >= 0 && xs[order[j]] > x) {
+                order[j + 1] = order[j];
+                j--;
+            }
+            order[j + 1] = id;
+        }
+    }
+}
@@ -0,0 +1,105 @@
+package com.android.rockpaperscissors.engine;
+
+/**
+ * Bounded history of keyframes of a match, for scrubbing back and forth without playing from the start.
+ * <p>
+ * A keyframe is taken every {@code interval} ticks into a fixed ring of {@link Snapshot}s, the oldest
+ * keyframe is overwritten when the ring is full. Seeking restores the closest keyframe before the
+ * requested tick and steps forward from it, so a seek plays at most {@code interval - 1} ticks.
+ * Matches are deterministic, so after seeking back the match plays exactly as it did before, and
+ * the keyframes after the seek stay valid.
+ */
+public class CheckpointRing {
+
+    private final Snapshot[] keyframes;
+    private final int interval;
+    // index of the oldest keyframe and the number of keyframes kept
+    private int oldest;
+    private int size;
+
+    /**
+     * Create an empty ring. All snapshots are allocated up front.
+     * @param world     world to take keyframes of.
+     * @param capacity  maximum number of keyframes kept.
+     * @param interval  ticks between two keyframes.
+     */
+    public CheckpointRing(World world, int capacity, int interval) {
+        if (capacity <= 0 || interval <= 0) {
+            throw new IllegalArgumentException("capacity and interval must be positive");
+        }
+        this.interval = interval;
+        keyframes = new Snapshot[capacity];
+        for (int i = 0; i < capacity; i++) {
+            keyframes[i] = new Snapshot(world);
+        }
+    }
+
+    /**
+     * Takes a keyframe if the world is at a keyframe tick that is not kept yet.
+     * Call it after every step, it does not allocate.
+     * @param world world to take the keyframe of.
+     */
+    public void record(World world) {
+        long tick = world.getTick();
+        if (tick % interval != 0 || (size > 0 && tick <= getNewestTick())) {
+            return;
+        }
+        Snapshot keyframe;
+        if (size < keyframes.length) {
+            keyframe = keyframes[(oldest + size) % keyframes.length];
+            size++;
+        } else {
+            keyframe = keyframes[oldest];
+            oldest = (oldest + 1) % keyframes.length;
+        }
+        keyframe.capture(world);
+    }
+
+    /**
+     * Puts the world at a tick, from the closest keyframe before it.
+     * @param world world the keyframes were taken of.
+     * @param tick  tick to go to, at least {@link #getOldestTick()}.
+     */
+    public void seek(World world, long tick) {
+        if (size == 0 || tick < getOldestTick()) {
+            throw new IllegalArgumentException("tick " + tick + " is older than the oldest keyframe");
+        }
+        // keyframes are kept in tick order
+        Snapshot closest = null;
+        for (int i = 0; i < size; i++) {
+            Snapshot keyframe = keyframes[(oldest + i) % keyframes.length];
+            if (keyframe.getTick() > tick) {
+                break;
+            }
+            closest = keyframe;
+        }
+        // a world between the keyframe and the tick is already closer
+        if (world.getTick() > tick || world.getTick() < closest.getTick()) {
+            closest.restore(world);
+        }
+        while (world.getTick() < tick) {
+            world.step(1f / World.TICK_RATE);
+        }
+    }
+
+    /**
+     * @return Tick of the oldest keyframe kept, or -1 if there is none.
+     */
+    public long getOldestTick() {
+        return size == 0 ? -1 : keyframes[oldest].getTick();
+    }
+
+    /**
+     * @return Tick of the newest keyframe kept, or -1 if there is none.
+     */
+    public long getNewestTick() {
+        return size == 0 ? -1 : keyframes[(oldest + size - 1) % keyframes.length].getTick();
+    }
+
+    /**
+     * @return Number of keyframes kept.
+     */
+    public int size() {
+        return size;
+    }
+}
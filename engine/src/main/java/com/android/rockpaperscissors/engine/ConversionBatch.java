@@ -0,0 +1,122 @@
+package com.android.rockpaperscissors.engine;
+
+import java.util.Arrays;
+
+/**
+ * The conversions of one tick, in the order they were applied, which is agent order.
+ * <p>
+ * A world collects the conversions of a step while the collision pass runs, applies them all in one
+ * commit phase at the end of the step, and then hands the whole batch to its
+ * {@link World.ConversionListener}s. The batch is only written by the thread that steps the world
+ * and is reused for the next tick, so listeners have to copy what they keep. Its arrays only grow,
+ * so once a match had its busiest tick, collecting conversions does not allocate.
+ */
+public final class ConversionBatch {
+
+    private static final int INITIAL_CAPACITY = 16;
+
+    private long tick;
+    private int size;
+    private int[] agents = new int[INITIAL_CAPACITY];
+    private byte[] from = new byte[INITIAL_CAPACITY];
+    private byte[] to = new byte[INITIAL_CAPACITY];
+    // conversions into every team, indexed by team number
+    private final int[] joined = new int[Dominance.MAX_TEAMS];
+
+    /**
+     * @return Index of the step the conversions happened in, starting at 0.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return Number of conversions in the batch.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @param conversion    index of the conversion in the batch.
+     * @return              Index of the eaten agent.
+     */
+    public int getAgent(int conversion) {
+        return agents[conversion];
+    }
+
+    /**
+     * @param conversion    index of the conversion in the batch.
+     * @return              Team the agent left.
+     * @throws IllegalArgumentException if the team is past the classic ones, see {@link #getFromNumber(int)}.
+     */
+    public Team getFrom(int conversion) {
+        return Team.of(from[conversion]);
+    }
+
+    /**
+     * @param conversion    index of the conversion in the batch.
+     * @return              Team the agent joined.
+     * @throws IllegalArgumentException if the team is past the classic ones, see {@link #getToNumber(int)}.
+     */
+    public Team getTo(int conversion) {
+        return Team.of(to[conversion]);
+    }
+
+    /**
+     * @param conversion    index of the conversion in the batch.
+     * @return              Number of the team the agent left, for worlds of any number of teams.
+     */
+    public int getFromNumber(int conversion) {
+        return from[conversion];
+    }
+
+    /**
+     * @param conversion    index of the conversion in the batch.
+     * @return              Number of the team the agent joined, for worlds of any number of teams.
+     */
+    public int getToNumber(int conversion) {
+        return to[conversion];
+    }
+
+    /**
+     * @param team  team to count the new members of.
+     * @return      Number of agents that joined the team in this batch, all of them from its prey.
+     */
+    public int joined(Team team) {
+        return joined[team.ordinal()];
+    }
+
+    /**
+     * @param team  number of the team to count the new members of.
+     * @return      Number of agents that joined the team in this batch.
+     */
+    public int joined(int team) {
+        return joined[team];
+    }
+
+    /**
+     * Empties the batch for the conversions of a new tick.
+     */
+    void clear(long tick) {
+        this.tick = tick;
+        size = 0;
+        Arrays.fill(joined, 0);
+    }
+
+    /**
+     * Appends a conversion.
+     */
+    void add(int agent, int fromTeam, int toTeam) {
+        if (size == agents.length) {
+            agents = Arrays.copyOf(agents, size * 2);
+            from = Arrays.copyOf(from, size * 2);
+            to = Arrays.copyOf(to, size * 2);
+        }
+        agents[size] = agent;
+        from[size] = (byte) fromTeam;
+        to[size] = (byte) toTeam;
+        joined[toTeam]++;
+        size++;
+    }
+}
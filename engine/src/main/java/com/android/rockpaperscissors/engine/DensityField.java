@@ -0,0 +1,129 @@
+package com.android.rockpaperscissors.engine;
+
+import java.util.Arrays;
+
+/**
+ * Per-team density of the agents on a grid of texels, drawn instead of the sprites when they are
+ * too small on screen to be told apart.
+ * Every agent is counted in the texel under its position, and every texel is colored with the mix
+ * of its teams' colors, more opaque the more of the texel the agents cover. Building it costs one
+ * pass over the agents and one over the texels, and drawing it is a single bitmap whatever the
+ * number of agents.
+ */
+public class DensityField {
+
+    // lowest alpha of a texel with agents, so a single agent in a large texel stays visible
+    private static final int MIN_ALPHA = 96;
+
+    private final float texelSize;
+    private final int columns, rows;
+    private final float agentArea;
+    private final int[] teamColors;
+    // agents per texel and team, the teams of a texel are next to each other
+    private final int[] counts;
+    private final int[] pixels;
+
+    /**
+     * Create an empty field covering a world.
+     * @param width         width of the world.
+     * @param height        height of the world.
+     * @param texelSize     edge length of a texel in world units.
+     * @param agentSize     edge length of an agent, for the coverage of a texel.
+     * @param teamColors    RGB color of every team of the world, indexed by team number.
+     */
+    public DensityField(float width, float height, float texelSize, float agentSize, int[] teamColors) {
+        // a world has 2 to Dominance.MAX_TEAMS teams
+        if (teamColors.length < 2 || teamColors.length > Dominance.MAX_TEAMS) {
+            throw new IllegalArgumentException("a color is needed for each of the 2 to " + Dominance.MAX_TEAMS
+                    + " teams");
+        }
+        this.texelSize = texelSize;
+        this.agentArea = agentSize * agentSize;
+        this.teamColors = teamColors.clone();
+        columns = Math.max(1, (int) Math.ceil(width / texelSize));
+        rows = Math.max(1, (int) Math.ceil(height / texelSize));
+        counts = new int[columns * rows * teamColors.length];
+        pixels = new int[columns * rows];
+    }
+
+    /**
+     * Counts the agents of a frame and colors every texel.
+     * @param frame frame of a world with the size this field was created for.
+     */
+    void build(RenderFrame frame) {
+        int teams = teamColors.length;
+        Arrays.fill(counts, 0);
+        for (int i = 0; i < frame.getAgentCount(); i++) {
+            int column = Math.max(0, Math.min(columns - 1, (int) (frame.getX(i, 1) / texelSize)));
+            int row = Math.max(0, Math.min(rows - 1, (int) (frame.getY(i, 1) / texelSize)));
+            counts[(row * columns + column) * teams + frame.getTeamNumber(i)]++;
+        }
+
+        float texelArea = texelSize * texelSize;
+        for (int texel = 0; texel < pixels.length; texel++) {
+            int total = 0, red = 0, green = 0, blue = 0;
+            for (int team = 0; team < teams; team++) {
+                int count = counts[texel * teams + team];
+                total += count;
+                red += count * ((teamColors[team] >> 16) & 0xFF);
+                green += count * ((teamColors[team] >> 8) & 0xFF);
+                blue += count * (teamColors[team] & 0xFF);
+            }
+            if (total == 0) {
+                pixels[texel] = 0;
+                continue;
+            }
+            int alpha = (int) Math.min(255, Math.max(MIN_ALPHA, 255 * total * agentArea / texelArea));
+            pixels[texel] = (alpha << 24) | ((red / total) << 16) | ((green / total) << 8) | (blue / total);
+        }
+    }
+
+    /**
+     * @param team      Team to be counted.
+     * @param column    Column of the texel.
+     * @param row       Row of the texel.
+     * @return          Number of agents of the team in the texel when the field was built.
+     */
+    public int count(Team team, int column, int row) {
+        return count(team.ordinal(), column, row);
+    }
+
+    /**
+     * @param team      number of the team to count.
+     * @param column    Column of the texel.
+     * @param row       Row of the texel.
+     * @return          Number of agents of the team in the texel when the field was built.
+     */
+    public int count(int team, int column, int row) {
+        return counts[(row * columns + column) * teamColors.length + team];
+    }
+
+    /**
+     * @return Number of teams the field has colors for.
+     */
+    public int getTeamCount() {
+        return teamColors.length;
+    }
+
+    /**
+     * @return ARGB colors of the texels row by row, not premultiplied. Transparent where there are no agents.
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+
+    /**
+     * @return Edge length of a texel in world units.
+     */
+    public float getTexelSize() {
+        return texelSize;
+    }
+
+    public int getColumns() {
+        return columns;
+    }
+
+    public int getRows() {
+        return rows;
+    }
+}
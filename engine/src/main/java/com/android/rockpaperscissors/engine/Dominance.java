@@ -0,0 +1,140 @@
+package com.android.rockpaperscissors.engine;
+
+import java.util.Arrays;
+
+/**
+ * Which team eats which, for any number of teams. Teams are numbered from 0, and every team has a
+ * bitmask of the teams it eats and one of the teams that eat it, so a nearest target search can test
+ * a candidate of any team with a single AND.
+ * <p>
+ * No team eats itself and no two teams eat each other. Two teams may ignore each other, in which case
+ * a match can end with both of them left, see {@link World#isDecided()}.
+ */
+public final class Dominance {
+
+    /**
+     * Largest number of teams, one bit of an int mask each.
+     */
+    public static final int MAX_TEAMS = 32;
+
+    /**
+     * Rock, paper, scissors: the {@link #cycle(int)} of the {@link Team}s, numbered by ordinal.
+     */
+    public static final Dominance CLASSIC = cycle(Team.count());
+
+    private final int[] preyMasks;
+    private final int[] hunterMasks;
+
+    private Dominance(int[] preyMasks) {
+        if (preyMasks.length < 2 || preyMasks.length > MAX_TEAMS) {
+            throw new IllegalArgumentException("there must be 2 to " + MAX_TEAMS + " teams");
+        }
+        this.preyMasks = preyMasks.clone();
+        hunterMasks = new int[preyMasks.length];
+        int teams = preyMasks.length == MAX_TEAMS ? -1 : (1 << preyMasks.length) - 1;
+        for (int hunter = 0; hunter < preyMasks.length; hunter++) {
+            int prey = preyMasks[hunter];
+            if ((prey & ~teams) != 0) {
+                throw new IllegalArgumentException("team " + hunter + " eats a team that does not exist");
+            }
+            if ((prey & 1 << hunter) != 0) {
+                throw new IllegalArgumentException("team " + hunter + " eats itself");
+            }
+            for (int t = 0; t < preyMasks.length; t++) {
+                if ((prey & 1 << t) != 0) {
+                    hunterMasks[t] |= 1 << hunter;
+                }
+            }
+        }
+        for (int t = 0; t < preyMasks.length; t++) {
+            if ((preyMasks[t] & hunterMasks[t]) != 0) {
+                throw new IllegalArgumentException("team " + t + " eats a team that eats it");
+            }
+        }
+    }
+
+    /**
+     * Create a matrix from the teams every team eats.
+     * @param preyMasks bit {@code p} of {@code preyMasks[t]} is set if team {@code t} eats team {@code p}.
+     * @return          The matrix.
+     */
+    public static Dominance of(int[] preyMasks) {
+        return new Dominance(preyMasks);
+    }
+
+    /**
+     * Every team eats the team before it and is eaten by the team after it, the last team eats the first.
+     * Of three teams this is rock, paper, scissors.
+     * @param teams number of teams.
+     * @return      The matrix.
+     */
+    public static Dominance cycle(int teams) {
+        int[] preyMasks = new int[teams];
+        for (int t = 0; t < teams; t++) {
+            preyMasks[t] = 1 << (t + teams - 1) % teams;
+        }
+        return new Dominance(preyMasks);
+    }
+
+    /**
+     * Every team eats the half of the other teams before it and is eaten by the half after it, so
+     * every pair of teams meets and every team is as strong as the others. Of five teams this is
+     * rock, paper, scissors, lizard, Spock in the order rock, Spock, paper, lizard, scissors.
+     * @param teams odd number of teams.
+     * @return      The matrix.
+     */
+    public static Dominance balanced(int teams) {
+        if (teams % 2 == 0) {
+            throw new IllegalArgumentException("a balanced game needs an odd number of teams");
+        }
+        int[] preyMasks = new int[teams];
+        for (int t = 0; t < teams; t++) {
+            for (int before = 1; before <= teams / 2; before++) {
+                preyMasks[t] |= 1 << (t + teams - before) % teams;
+            }
+        }
+        return new Dominance(preyMasks);
+    }
+
+    /**
+     * @return Number of teams.
+     */
+    public int size() {
+        return preyMasks.length;
+    }
+
+    /**
+     * @param team  number of the team.
+     * @return      Mask of the teams the team eats.
+     */
+    public int getPreyMask(int team) {
+        return preyMasks[team];
+    }
+
+    /**
+     * @param team  number of the team.
+     * @return      Mask of the teams that eat the team.
+     */
+    public int getHunterMask(int team) {
+        return hunterMasks[team];
+    }
+
+    /**
+     * @param hunter    number of the team that might eat.
+     * @param prey      number of the team that might be eaten.
+     * @return          true if the hunter team eats the prey team.
+     */
+    public boolean eats(int hunter, int prey) {
+        return (preyMasks[hunter] & 1 << prey) != 0;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof Dominance && Arrays.equals(preyMasks, ((Dominance) other).preyMasks);
+    }
+
+    @Override
+    public int hashCode() {
+        return Arrays.hashCode(preyMasks);
+    }
+}
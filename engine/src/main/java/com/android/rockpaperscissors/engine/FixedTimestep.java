@@ -0,0 +1,81 @@
+package com.android.rockpaperscissors.engine;
+
+/**
+ * Fixed timestep accumulator.
+ * Turns the real time between frames into a whole number of simulation ticks of constant length,
+ * so the simulation advances the same way on fast and slow devices. The time left over after the
+ * last whole tick is kept for the next frame and can be used to interpolate render positions.
+ */
+public class FixedTimestep {
+
+    private static final long NANOS_PER_SECOND = 1_000_000_000L;
+
+    private final int tickRate;
+    private final long stepNanos;
+    private final int maxStepsPerFrame;
+    private long accumulator;
+    private long droppedSteps;
+
+    /**
+     * Create a timestep.
+     * @param tickRate          simulation ticks per second.
+     * @param maxStepsPerFrame  maximum number of ticks to catch up in a single frame. Time beyond
+     *                          that is dropped, so a long stall slows the match down instead of
+     *                          making every later frame slower.
+     */
+    public FixedTimestep(int tickRate, int maxStepsPerFrame) {
+        if (tickRate <= 0 || maxStepsPerFrame <= 0) {
+            throw new IllegalArgumentException("tickRate and maxStepsPerFrame must be positive");
+        }
+        this.tickRate = tickRate;
+        this.stepNanos = NANOS_PER_SECOND / tickRate;
+        this.maxStepsPerFrame = maxStepsPerFrame;
+    }
+
+    /**
+     * Adds the real time passed since the previous frame.
+     * @param elapsedNanos  time since the previous call, in nanoseconds.
+     * @return              number of ticks to simulate before rendering this frame.
+     */
+    public int advance(long elapsedNanos) {
+        accumulator += Math.max(0, elapsedNanos);
+        long steps = accumulator / stepNanos;
+        if (steps > maxStepsPerFrame) {
+            droppedSteps += steps - maxStepsPerFrame;
+            steps = maxStepsPerFrame;
+            accumulator = 0;
+        } else {
+            accumulator -= steps * stepNanos;
+        }
+        return (int) steps;
+    }
+
+    /**
+     * @return Fraction of a tick accumulated but not simulated yet, between 0 and 1.
+     * Render positions are interpolated by this amount between the last two ticks.
+     */
+    public float getAlpha() {
+        return (float) accumulator / stepNanos;
+    }
+
+    /**
+     * @return Time until the next tick is due, in nanoseconds.
+     */
+    public long getNanosUntilNextStep() {
+        return stepNanos - accumulator;
+    }
+
+    /**
+     * @return Length of a single tick in seconds, to be passed to {@link World#step(float)}.
+     */
+    public float getStepSeconds() {
+        return 1f / tickRate;
+    }
+
+    /**
+     * @return Number of ticks skipped because a frame needed more than the catch-up limit.
+     */
+    public long getDroppedSteps() {
+        return droppedSteps;
+    }
+}
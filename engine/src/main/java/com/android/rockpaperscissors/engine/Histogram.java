@@ -0,0 +1,137 @@
+package com.android.rockpaperscissors.engine;
+
+import java.util.Arrays;
+
+/**
+ * Log-linear histogram of non-negative values, such as latencies in nanoseconds.
+ * Values below 128 get a bucket each. Above that, every power of two is split into 64 buckets,
+ * so a percentile is within 1.6% of the recorded value over the whole range of a long.
+ * Recording is a few shifts and an increment, and never allocates.
+ * <p>
+ * A histogram is recorded by a single thread. Other threads read a copy made with
+ * {@link #copyTo(Histogram)} while the recording thread is held off, or values can be torn.
+ */
+public class Histogram {
+
+    private static final int SUB_BUCKET_BITS = 7;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    private static final int HALF_SUB_BUCKETS = SUB_BUCKETS / 2;
+    private static final int BUCKETS = bucketOf(Long.MAX_VALUE) + 1;
+
+    private final int[] counts = new int[BUCKETS];
+    private long count;
+    private long sum;
+    private long min = Long.MAX_VALUE;
+    private long max;
+
+    /**
+     * Adds a value. Negative values are counted as 0.
+     * @param value value to add.
+     */
+    public void record(long value) {
+        value = Math.max(0, value);
+        counts[bucketOf(value)]++;
+        count++;
+        sum += value;
+        min = Math.min(min, value);
+        max = Math.max(max, value);
+    }
+
+    /**
+     * Removes every value.
+     */
+    public void reset() {
+        Arrays.fill(counts, 0);
+        count = 0;
+        sum = 0;
+        min = Long.MAX_VALUE;
+        max = 0;
+    }
+
+    /**
+     * Replaces the values of another histogram with the values of this one. Does not allocate.
+     * @param copy  histogram to copy into.
+     */
+    public void copyTo(Histogram copy) {
+        System.arraycopy(counts, 0, copy.counts, 0, BUCKETS);
+        copy.count = count;
+        copy.sum = sum;
+        copy.min = min;
+        copy.max = max;
+    }
+
+    /**
+     * @param percentile    percentile between 0 and 100.
+     * @return              The smallest recorded value that this percentage of the values is smaller than or
+     *                      equal to, rounded up to the end of its bucket. 0 if nothing was recorded.
+     */
+    public long getValueAtPercentile(double percentile) {
+        long total = count;
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(100, percentile) / 100 * total));
+        long seen = 0;
+        for (int bucket = 0; bucket < BUCKETS; bucket++) {
+            seen += counts[bucket];
+            if (seen >= rank) {
+                return Math.max(min, Math.min(max, highestValueOf(bucket)));
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return Number of recorded values.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return Smallest recorded value, or 0 if nothing was recorded.
+     */
+    public long getMin() {
+        return count == 0 ? 0 : min;
+    }
+
+    /**
+     * @return Largest recorded value, or 0 if nothing was recorded.
+     */
+    public long getMax() {
+        return max;
+    }
+
+    /**
+     * @return Average of the recorded values, or 0 if nothing was recorded.
+     */
+    public double getMean() {
+        long total = count;
+        return total == 0 ? 0 : (double) sum / total;
+    }
+
+    /**
+     * Bucket of a value: the value itself below {@link #SUB_BUCKETS}, then {@link #HALF_SUB_BUCKETS}
+     * buckets for every further power of two.
+     */
+    static int bucketOf(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        // keeps the top SUB_BUCKET_BITS bits of the value, the first of which is always set
+        int shift = 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return SUB_BUCKETS + (shift - 1) * HALF_SUB_BUCKETS + (int) (value >>> shift) - HALF_SUB_BUCKETS;
+    }
+
+    /**
+     * Largest value that falls into a bucket.
+     */
+    static long highestValueOf(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket - SUB_BUCKETS) / HALF_SUB_BUCKETS + 1;
+        long mantissa = (bucket - SUB_BUCKETS) % HALF_SUB_BUCKETS + HALF_SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
@@ -0,0 +1,239 @@
+package com.android.rockpaperscissors.engine;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Locale;
+
+/**
+ * Performance counters of a running match: a latency histogram for every phase of the simulation
+ * and render loops, the conversions of every tick and the latest team counts.
+ * It is only created when instrumentation is turned on, so the loops check for null instead of
+ * paying for any timing when it is off. Each phase is recorded by one thread. Recording is
+ * synchronized, so the overlay or a JSON dump reads a consistent copy made with
+ * {@link #copyTo(Metrics)} instead of counters a recording thread is changing.
+ */
+public class Metrics implements World.ConversionListener {
+
+    /**
+     * Timed phases of the simulation and render loops.
+     */
+    public enum Phase {
+        /** One tick of the simulation. */
+        TICK("tick"),
+        /** Copying the world into a frame for the render thread. */
+        PUBLISH("publish"),
+        /** Waiting for a canvas from the surface. */
+        LOCK_CANVAS("lockCanvas"),
+        /** Drawing a frame onto the canvas. */
+        DRAW("draw"),
+        /** Handing the canvas back to be shown. */
+        POST("post"),
+        /** Time between the starts of two frames. */
+        FRAME("frame");
+
+        private final String key;
+
+        Phase(String key) {
+            this.key = key;
+        }
+
+        /**
+         * @return Name of the phase in the JSON dump.
+         */
+        public String getKey() {
+            return key;
+        }
+    }
+
+    private final Histogram[] phases = new Histogram[Phase.values().length];
+    private final Histogram conversionsPerTick = new Histogram();
+    private final int[] agents;
+    private long tick;
+    private long conversions;
+    private int tickConversions;
+    private long gcCount, gcMillis;
+
+    /**
+     * @param teams number of teams in the world, see {@link World#getTeamCount()}.
+     */
+    public Metrics(int teams) {
+        agents = new int[teams];
+        for (int phase = 0; phase < phases.length; phase++) {
+            phases[phase] = new Histogram();
+        }
+    }
+
+    /**
+     * Adds the duration of a phase.
+     * @param phase Phase that was timed.
+     * @param nanos Duration in nanoseconds.
+     */
+    public synchronized void record(Phase phase, long nanos) {
+        phases[phase.ordinal()].record(nanos);
+    }
+
+    /**
+     * Counts the conversions of the current tick. Called by the world on the simulation thread.
+     */
+    @Override
+    public void onConversions(ConversionBatch batch) {
+        tickConversions += batch.size();
+    }
+
+    /**
+     * Closes a tick: records its conversions and takes the team counts.
+     * Called on the simulation thread after every step.
+     * @param world world that was stepped.
+     */
+    public synchronized void onTick(World world) {
+        if (world.getTeamCount() != agents.length) {
+            throw new IllegalArgumentException("the world has " + world.getTeamCount() + " teams, the metrics "
+                    + agents.length);
+        }
+        conversionsPerTick.record(tickConversions);
+        conversions += tickConversions;
+        tickConversions = 0;
+        for (int t = 0; t < agents.length; t++) {
+            agents[t] = world.count(t);
+        }
+        tick = world.getTick();
+    }
+
+    /**
+     * Sets the garbage collections of the process so far, which only the platform can tell.
+     * @param count     number of collections.
+     * @param millis    total time spent collecting.
+     */
+    public synchronized void setGc(long count, long millis) {
+        gcCount = count;
+        gcMillis = millis;
+    }
+
+    /**
+     * Replaces the counters of another instance with the counters of this one, while no thread records.
+     * Does not allocate.
+     * @param copy  metrics of a world with as many teams, only read by the calling thread.
+     */
+    public synchronized void copyTo(Metrics copy) {
+        if (copy.agents.length != agents.length) {
+            throw new IllegalArgumentException("the copy has " + copy.agents.length + " teams, the metrics "
+                    + agents.length);
+        }
+        for (int phase = 0; phase < phases.length; phase++) {
+            phases[phase].copyTo(copy.phases[phase]);
+        }
+        conversionsPerTick.copyTo(copy.conversionsPerTick);
+        System.arraycopy(agents, 0, copy.agents, 0, agents.length);
+        copy.tick = tick;
+        copy.conversions = conversions;
+        copy.gcCount = gcCount;
+        copy.gcMillis = gcMillis;
+    }
+
+    public Histogram get(Phase phase) {
+        return phases[phase.ordinal()];
+    }
+
+    public Histogram getConversionsPerTick() {
+        return conversionsPerTick;
+    }
+
+    /**
+     * @return Tick of the latest {@link #onTick(World)}.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return Number of conversions in all closed ticks.
+     */
+    public long getConversions() {
+        return conversions;
+    }
+
+    /**
+     * @param team  Team to be counted.
+     * @return      Number of agents in the team at the latest {@link #onTick(World)}.
+     */
+    public int count(Team team) {
+        return agents[team.ordinal()];
+    }
+
+    /**
+     * @param team  number of the team to count.
+     * @return      Number of agents in the team at the latest {@link #onTick(World)}.
+     */
+    public int count(int team) {
+        return agents[team];
+    }
+
+    /**
+     * @return Number of teams counted.
+     */
+    public int getTeamCount() {
+        return agents.length;
+    }
+
+    public long getGcCount() {
+        return gcCount;
+    }
+
+    public long getGcMillis() {
+        return gcMillis;
+    }
+
+    /**
+     * Writes every counter as a JSON object. Latencies are in nanoseconds.
+     * @param out   writer to write to, it is not closed.
+     * @throws IOException if the writer fails.
+     */
+    public void writeJson(Writer out) throws IOException {
+        out.write("{\n  \"tick\": " + tick);
+        out.write(",\n  \"conversions\": " + conversions);
+        out.write(",\n  \"agents\": {");
+        for (int t = 0; t < agents.length; t++) {
+            out.write((t == 0 ? "" : ", ") + "\"" + getTeamName(t) + "\": " + agents[t]);
+        }
+        out.write("},\n  \"gc\": {\"count\": " + gcCount + ", \"millis\": " + gcMillis + "}");
+        out.write(",\n  \"conversionsPerTick\": ");
+        writeJson(out, conversionsPerTick);
+        out.write(",\n  \"phases\": {");
+        for (Phase phase : Phase.values()) {
+            out.write((phase.ordinal() == 0 ? "\n" : ",\n") + "    \"" + phase.getKey() + "\": ");
+            writeJson(out, get(phase));
+        }
+        out.write("\n  }\n}\n");
+    }
+
+    /**
+     * Teams are named after the classic teams when there are just those, and numbered otherwise.
+     */
+    private String getTeamName(int team) {
+        return agents.length == Team.count() ? Team.of(team).name().toLowerCase(Locale.ROOT) : "team" + team;
+    }
+
+    private static void writeJson(Writer out, Histogram histogram) throws IOException {
+        out.write(String.format(Locale.ROOT,
+                "{\"count\": %d, \"min\": %d, \"mean\": %.1f, \"p50\": %d, \"p90\": %d, \"p99\": %d, \"p999\": %d, \"max\": %d}",
+                histogram.getCount(), histogram.getMin(), histogram.getMean(),
+                histogram.getValueAtPercentile(50), histogram.getValueAtPercentile(90),
+                histogram.getValueAtPercentile(99), histogram.getValueAtPercentile(99.9), histogram.getMax()));
+    }
+
+    /**
+     * Appends a duration in milliseconds with two decimals, without allocating.
+     * @param out   builder to append to.
+     * @param nanos duration in nanoseconds.
+     * @return      The builder.
+     */
+    public static StringBuilder appendMillis(StringBuilder out, long nanos) {
+        long hundredths = (Math.max(0, nanos) + 5_000) / 10_000;
+        out.append(hundredths / 100).append('.');
+        long fraction = hundredths % 100;
+        if (fraction < 10) {
+            out.append('0');
+        }
+        return out.append(fraction);
+    }
+}
@@ -0,0 +1,324 @@
+package com.android.rockpaperscissors.engine;
+
+import java.util.Arrays;
+
+/**
+ * The team populations and conversions of a match over time, in a fixed number of points however
+ * long the match runs.
+ * <p>
+ * Every tick is offered to the history, but a point is only added once {@code stride} ticks passed
+ * since the last one. Of the ticks in between, the one furthest from the last point is added, so a
+ * short spike is not skipped. When the points are full they are downsampled to half with
+ * largest-triangle-three-buckets (LTTB), which keeps the points that change the shape of the curves
+ * most, and the stride doubles. The points stay about evenly spread over the match, and the first and
+ * latest tick are always kept. A tick costs a few array reads and writes, and downsampling {@code n}
+ * points happens once every {@code n / 2} points.
+ * <p>
+ * Each point keeps the conversions since the point before it, so the conversion rate between two
+ * points stays exact after downsampling. The history is written to a flat int array by
+ * {@link #toArray()}, small enough to pass along with an Intent, and read with the static methods.
+ * The array holds its number of teams, so it can be read for a world of any number of teams.
+ */
+public class PopulationHistory implements World.ConversionListener {
+
+    public static final int DEFAULT_CAPACITY = 256;
+    // the array starts with the number of points and teams, then holds tick, team counts and conversions per point
+    private static final int HEADER_SIZE = 2;
+    private static final int MIN_CAPACITY = 4;
+
+    private final int capacity;
+    private final int teams;
+    private final long[] ticks;
+    // counts of point p are at p * teams
+    private final int[] counts;
+    private final int[] conversions;
+    private int size;
+    private int stride = 1;
+
+    // latest tick, the last point of the array
+    private long latestTick = -1;
+    private final int[] latestCounts;
+    private int pendingConversions;
+    // tick since the last point that is furthest from it, added as a point once the stride has passed
+    private long candidateTick = -1;
+    private final int[] candidateCounts;
+    private int candidateConversions;
+    private long candidateDistance;
+    // indexes of the points kept by a downsampling, and the average counts of a bucket
+    private final int[] kept;
+    private final double[] averageCounts;
+
+    /**
+     * Create a history that starts with the populations of a world, and subscribe it to the
+     * conversions of the world. Call {@link #onTick(World)} after every step.
+     * @param world     world to record, usually at its first tick.
+     * @param capacity  largest number of points kept, at least 4.
+     */
+    public PopulationHistory(World world, int capacity) {
+        this(world.getTeamCount(), capacity);
+        onTick(world);
+        world.addConversionListener(this);
+    }
+
+    PopulationHistory(int teams, int capacity) {
+        if (capacity < MIN_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be at least " + MIN_CAPACITY);
+        }
+        this.teams = teams;
+        this.capacity = capacity;
+        latestCounts = new int[teams];
+        candidateCounts = new int[teams];
+        averageCounts = new double[teams];
+        ticks = new long[capacity];
+        counts = new int[capacity * teams];
+        conversions = new int[capacity];
+        kept = new int[capacity / 2];
+    }
+
+    /**
+     * Counts the conversions of a tick. Conversions of a tick that was already recorded are ignored,
+     * as they happen again after the world is restored to an earlier tick.
+     */
+    @Override
+    public void onConversions(ConversionBatch batch) {
+        if (batch.getTick() >= latestTick) {
+            pendingConversions += batch.size();
+        }
+    }
+
+    /**
+     * Records the populations of the world after a step. Called on the thread that steps the world.
+     * Ticks that were already recorded are ignored.
+     * @param world world that was stepped.
+     */
+    public void onTick(World world) {
+        long tick = world.getTick();
+        if (tick <= latestTick) {
+            return;
+        }
+        for (int t = 0; t < teams; t++) {
+            latestCounts[t] = world.count(t);
+        }
+        record(tick, latestCounts, 0);
+    }
+
+    /**
+     * Records the populations at a tick. Package-private so tests can record any curve.
+     * @param tick          tick after the previous recorded one.
+     * @param teamCounts    population of every team, indexed by team number.
+     * @param tickConversions conversions since the previous tick, besides those counted by
+     *                      {@link #onConversions(ConversionBatch)}.
+     */
+    void record(long tick, int[] teamCounts, int tickConversions) {
+        if (tick <= latestTick) {
+            return;
+        }
+        latestTick = tick;
+        pendingConversions += tickConversions;
+        if (teamCounts != latestCounts) {
+            System.arraycopy(teamCounts, 0, latestCounts, 0, teams);
+        }
+        long distance = 0;
+        if (size > 0) {
+            for (int t = 0; t < teams; t++) {
+                distance += Math.abs(teamCounts[t] - counts[(size - 1) * teams + t]);
+            }
+        }
+        // a later tick wins a tie, so flat curves keep their points a stride apart
+        if (candidateTick < 0 || distance >= candidateDistance) {
+            candidateTick = tick;
+            System.arraycopy(teamCounts, 0, candidateCounts, 0, teams);
+            candidateConversions = pendingConversions;
+            candidateDistance = distance;
+        }
+        if (size > 0 && tick - ticks[size - 1] < stride) {
+            return;
+        }
+        ticks[size] = candidateTick;
+        System.arraycopy(candidateCounts, 0, counts, size * teams, teams);
+        conversions[size] = candidateConversions;
+        pendingConversions -= candidateConversions;
+        candidateTick = -1;
+        size++;
+        if (size == capacity) {
+            downsample();
+            stride *= 2;
+        }
+    }
+
+    /**
+     * Halves the points with largest-triangle-three-buckets. The points between the first and last
+     * are split into buckets, and each bucket keeps the point that makes the largest triangle with
+     * the point kept before it and the average of the next bucket, the area summed over the teams.
+     * The conversions of dropped points move to the next kept point.
+     */
+    private void downsample() {
+        int target = capacity / 2;
+        double bucketSize = (double) (size - 2) / (target - 2);
+        kept[0] = 0;
+        int previous = 0;
+        for (int bucket = 0; bucket < target - 2; bucket++) {
+            int start = (int) (bucket * bucketSize) + 1;
+            int end = (int) ((bucket + 1) * bucketSize) + 1;
+            // average of the next bucket, the last point for the last bucket
+            int nextStart = end;
+            int nextEnd = Math.min(size, (int) ((bucket + 2) * bucketSize) + 1);
+            if (bucket == target - 3) {
+                nextStart = size - 1;
+                nextEnd = size;
+            }
+            double averageTick = 0;
+            Arrays.fill(averageCounts, 0);
+            for (int p = nextStart; p < nextEnd; p++) {
+                averageTick += ticks[p];
+                for (int t = 0; t < teams; t++) {
+                    averageCounts[t] += counts[p * teams + t];
+                }
+            }
+            averageTick /= nextEnd - nextStart;
+            for (int t = 0; t < teams; t++) {
+                averageCounts[t] /= nextEnd - nextStart;
+            }
+
+            double largestArea = -1;
+            int chosen = start;
+            for (int p = start; p < end; p++) {
+                double area = 0;
+                for (int t = 0; t < teams; t++) {
+                    int previousCount = counts[previous * teams + t];
+                    area += Math.abs((ticks[previous] - averageTick) * (counts[p * teams + t] - previousCount)
+                            - (ticks[previous] - ticks[p]) * (averageCounts[t] - previousCount));
+                }
+                if (area > largestArea) {
+                    largestArea = area;
+                    chosen = p;
+                }
+            }
+            kept[bucket + 1] = chosen;
+            previous = chosen;
+        }
+        kept[target - 1] = size - 1;
+
+        // kept points only move down, so they can be compacted in place
+        int from = 0;
+        for (int k = 0; k < target; k++) {
+            int p = kept[k];
+            int pointConversions = 0;
+            for (; from <= p; from++) {
+                pointConversions += conversions[from];
+            }
+            ticks[k] = ticks[p];
+            System.arraycopy(counts, p * teams, counts, k * teams, teams);
+            conversions[k] = pointConversions;
+        }
+        size = target;
+    }
+
+    /**
+     * @return Number of points, including the latest tick when it is not a point yet.
+     */
+    public int size() {
+        return size + (hasPendingTick() ? 1 : 0);
+    }
+
+    /**
+     * Writes the history to a flat array: the number of points and of teams, then for every point its
+     * tick, the population of every team in team number order and the conversions since the point
+     * before. The latest tick is always the last point. Ticks are stored as ints, enough for a year
+     * long match.
+     * @return New array of {@code 2 + size() * (teams + 2)} ints.
+     */
+    public int[] toArray() {
+        int points = size();
+        int pointSize = teams + 2;
+        int[] array = new int[HEADER_SIZE + points * pointSize];
+        array[0] = points;
+        array[1] = teams;
+        for (int p = 0; p < size; p++) {
+            int offset = HEADER_SIZE + p * pointSize;
+            array[offset] = (int) ticks[p];
+            System.arraycopy(counts, p * teams, array, offset + 1, teams);
+            array[offset + 1 + teams] = conversions[p];
+        }
+        if (hasPendingTick()) {
+            int offset = HEADER_SIZE + size * pointSize;
+            array[offset] = (int) latestTick;
+            System.arraycopy(latestCounts, 0, array, offset + 1, teams);
+            array[offset + 1 + teams] = pendingConversions;
+        }
+        return array;
+    }
+
+    private boolean hasPendingTick() {
+        return size > 0 && latestTick > ticks[size - 1];
+    }
+
+    /**
+     * @param history   array written by {@link #toArray()}.
+     * @return          Number of points in the array.
+     */
+    public static int getPointCount(int[] history) {
+        return history.length == 0 ? 0 : history[0];
+    }
+
+    /**
+     * @param history   array written by {@link #toArray()}.
+     * @return          Number of teams of the recorded world.
+     */
+    public static int getTeamCount(int[] history) {
+        return history[1];
+    }
+
+    /**
+     * @param history   array written by {@link #toArray()}.
+     * @param point     index of the point, in tick order.
+     * @return          Tick of the point.
+     */
+    public static int getTick(int[] history, int point) {
+        return history[HEADER_SIZE + point * (getTeamCount(history) + 2)];
+    }
+
+    /**
+     * @param history   array written by {@link #toArray()}.
+     * @param point     index of the point, in tick order.
+     * @param team      team to count.
+     * @return          Population of the team at the tick of the point.
+     */
+    public static int getCount(int[] history, int point, Team team) {
+        return getCount(history, point, team.ordinal());
+    }
+
+    /**
+     * @param history   array written by {@link #toArray()}.
+     * @param point     index of the point, in tick order.
+     * @param team      number of the team to count.
+     * @return          Population of the team at the tick of the point.
+     */
+    public static int getCount(int[] history, int point, int team) {
+        return history[HEADER_SIZE + point * (getTeamCount(history) + 2) + 1 + team];
+    }
+
+    /**
+     * @param history   array written by {@link #toArray()}.
+     * @param point     index of the point, in tick order.
+     * @return          Conversions after the tick of the point before, up to the tick of this point.
+     */
+    public static int getConversions(int[] history, int point) {
+        int teams = getTeamCount(history);
+        return history[HEADER_SIZE + point * (teams + 2) + teams + 1];
+    }
+
+    /**
+     * @param history   array written by {@link #toArray()}.
+     * @return          Largest population of any team at any point, 0 if there are none.
+     */
+    public static int getMaxCount(int[] history) {
+        int max = 0;
+        for (int p = 0; p < getPointCount(history); p++) {
+            for (int t = 0; t < getTeamCount(history); t++) {
+                max = Math.max(max, getCount(history, p, t));
+            }
+        }
+        return max;
+    }
+}
@@ -0,0 +1,157 @@
+package com.android.rockpaperscissors.engine;
+
+/**
+ * Adaptive quality that keeps a match at its frame rate under load.
+ * The governor smooths the measured tick and draw times into a load: the larger of the share of
+ * real time the simulation thread is busy and the share of the frame budget spent drawing. When the
+ * load stays above 90% it goes up one quality level, and when it stays below 50% for longer it
+ * comes back down one level, so it does not flip between two levels every frame.
+ * <p>
+ * Each level keeps the savings of the levels below it:
+ * <ol start="0">
+ *     <li>full quality.</li>
+ *     <li>agents look up their nearest targets twice as rarely, see {@link World#setRetargetInterval(int)}.</li>
+ *     <li>agents look up their nearest targets four times as rarely.</li>
+ *     <li>sprites switch to the density heatmap at twice their usual on-screen size.</li>
+ *     <li>the simulation plays at 3/4 of real time.</li>
+ *     <li>the simulation plays at 1/2 of real time.</li>
+ * </ol>
+ * Slowing the simulation down keeps every tick the same length, so a match still plays the same way,
+ * only slower. Draw times are recorded and levels are evaluated on the render thread, tick times on the
+ * simulation thread, and the settings of the level can be read from either.
+ */
+public class QualityGovernor {
+
+    public static final int MAX_LEVEL = 5;
+    // multiples of World.DEFAULT_RETARGET_INTERVAL
+    private static final int[] RETARGET_FACTORS = {1, 2, 4, 4, 4, 4};
+    private static final float[] LOD_SCALES = {1, 1, 1, 2, 2, 2};
+    private static final float[] TICK_RATE_SCALES = {1, 1, 1, 1, 0.75f, 0.5f};
+    /** Largest factor of {@link #getLodScale()} over all levels. */
+    public static final float MAX_LOD_SCALE = 2;
+
+    // load above which a level is dropped, and below which one is restored
+    private static final double DEGRADE_LOAD = 0.9;
+    private static final double RESTORE_LOAD = 0.5;
+    // evaluations in a row needed to change the level: half a second to degrade, three to restore at 60 fps
+    private static final int DEGRADE_FRAMES = 30;
+    private static final int RESTORE_FRAMES = 180;
+    // weight of a new time in the moving averages
+    private static final double SMOOTHING = 0.1;
+    private static final double NANOS_PER_SECOND = 1_000_000_000.0;
+
+    private final long frameNanos;
+    private final int tickRate;
+    private volatile double tickNanos;
+    private double drawNanos;
+    private volatile int level;
+    private int overBudget, underBudget;
+
+    /**
+     * Create a governor at full quality.
+     * @param frameNanos    frame budget in nanoseconds.
+     * @param tickRate      simulation ticks per second at full quality.
+     */
+    public QualityGovernor(long frameNanos, int tickRate) {
+        if (frameNanos <= 0 || tickRate <= 0) {
+            throw new IllegalArgumentException("frameNanos and tickRate must be positive");
+        }
+        this.frameNanos = frameNanos;
+        this.tickRate = tickRate;
+    }
+
+    /**
+     * Adds the measured time of a simulation tick. Called on the simulation thread.
+     * @param nanos time of the tick in nanoseconds.
+     */
+    public void recordTick(long nanos) {
+        tickNanos += (nanos - tickNanos) * SMOOTHING;
+    }
+
+    /**
+     * Adds the measured time of drawing a frame. Called on the render thread.
+     * @param nanos time of the frame in nanoseconds.
+     */
+    public void recordDraw(long nanos) {
+        drawNanos += (nanos - drawNanos) * SMOOTHING;
+    }
+
+    /**
+     * Evaluates the load and changes the level by one if it was out of bounds for long enough.
+     * Called once per frame on the render thread.
+     * @return true if the level changed.
+     */
+    public boolean update() {
+        double load = getLoad();
+        if (load > DEGRADE_LOAD) {
+            overBudget++;
+            underBudget = 0;
+        } else if (load < RESTORE_LOAD) {
+            underBudget++;
+            overBudget = 0;
+        } else {
+            overBudget = 0;
+            underBudget = 0;
+        }
+        if (overBudget >= DEGRADE_FRAMES && level < MAX_LEVEL) {
+            setLevel(level + 1);
+            return true;
+        }
+        if (underBudget >= RESTORE_FRAMES && level > 0) {
+            setLevel(level - 1);
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return Smoothed load: the larger of the busy share of the simulation thread at the current tick
+     * rate and the share of the frame budget spent drawing. Above 1 a thread can not keep up.
+     */
+    public double getLoad() {
+        double tickLoad = tickNanos * tickRate * getTickRateScale() / NANOS_PER_SECOND;
+        double drawLoad = drawNanos / frameNanos;
+        return Math.max(tickLoad, drawLoad);
+    }
+
+    /**
+     * Forces a level. The load has to stay out of bounds for a whole period again before it changes.
+     * @param level level between 0 and {@link #MAX_LEVEL}.
+     */
+    public void setLevel(int level) {
+        if (level < 0 || level > MAX_LEVEL) {
+            throw new IllegalArgumentException("level " + level + " is outside 0.." + MAX_LEVEL);
+        }
+        this.level = level;
+        overBudget = 0;
+        underBudget = 0;
+    }
+
+    /**
+     * @return Current quality level, 0 is full quality.
+     */
+    public int getLevel() {
+        return level;
+    }
+
+    /**
+     * @return Ticks between nearest target lookups to pass to {@link World#setRetargetInterval(int)}.
+     */
+    public int getRetargetInterval() {
+        return World.DEFAULT_RETARGET_INTERVAL * RETARGET_FACTORS[level];
+    }
+
+    /**
+     * @return Factor for the on-screen sprite size below which the density heatmap is drawn instead.
+     */
+    public float getLodScale() {
+        return LOD_SCALES[level];
+    }
+
+    /**
+     * @return Share of real time the simulation plays at, 1 at full quality.
+     */
+    public float getTickRateScale() {
+        return TICK_RATE_SCALES[level];
+    }
+}
@@ -0,0 +1,272 @@
+package com.android.rockpaperscissors.engine;
+
+import java.util.Arrays;
+
+/**
+ * Copy of everything needed to draw one tick of the world.
+ * Filled by the simulation thread with {@link World#writeFrame(RenderFrame, long)} and read by the
+ * render thread after it was passed through a {@link TripleBuffer}. Once published, a frame is not
+ * changed until the render thread gives it back, so it can be drawn without locking.
+ * <p>
+ * The agents are also bucketed into a coarse grid by position while the frame is written, so
+ * drawing a viewport only visits the agents in the cells it overlaps.
+ * A frame can also carry a {@link DensityField}, which is only built on request, for when the
+ * agents are too small to be drawn one by one.
+ */
+public class RenderFrame {
+
+    private final int agentCount;
+    private final float[] x, y, previousX, previousY;
+    private final byte[] team;
+    private final int[] counts;
+    // agents sorted by cell, the agents of cell c are cellAgents[cellStart[c]] to cellAgents[cellStart[c + 1] - 1]
+    private final float cellSize;
+    private final int columns, rows;
+    private final int[] cellStart;
+    private final int[] cellAgents;
+    // largest distance an agent moved on either axis in the last tick
+    private float maxMove;
+    private DensityField density;
+    private boolean densityBuilt;
+    long tick;
+    long publishNanos;
+    Team winner;
+
+    /**
+     * Create an empty frame without a spatial grid, every agent is in a single cell.
+     * @param agentCount    number of agents in the world.
+     */
+    public RenderFrame(int agentCount) {
+        this(agentCount, 1, 1, 1);
+    }
+
+    /**
+     * Create an empty frame with a spatial grid for a world of the classic teams.
+     * @param agentCount    number of agents in the world.
+     * @param width         width of the world.
+     * @param height        height of the world.
+     * @param cellSize      edge length of a grid cell.
+     */
+    public RenderFrame(int agentCount, float width, float height, float cellSize) {
+        this(agentCount, width, height, cellSize, Team.count());
+    }
+
+    /**
+     * Create an empty frame with a spatial grid.
+     * @param agentCount    number of agents in the world.
+     * @param width         width of the world.
+     * @param height        height of the world.
+     * @param cellSize      edge length of a grid cell.
+     * @param teams         number of teams in the world, see {@link World#getTeamCount()}.
+     */
+    public RenderFrame(int agentCount, float width, float height, float cellSize, int teams) {
+        this.agentCount = agentCount;
+        this.cellSize = cellSize;
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        cellStart = new int[columns * rows + 1];
+        cellAgents = new int[agentCount];
+        x = new float[agentCount];
+        y = new float[agentCount];
+        previousX = new float[agentCount];
+        previousY = new float[agentCount];
+        team = new byte[agentCount];
+        counts = new int[teams];
+    }
+
+    /**
+     * Copies the state of the world into this frame.
+     */
+    void copy(float[] x, float[] y, float[] previousX, float[] previousY, byte[] team, int[] counts) {
+        System.arraycopy(x, 0, this.x, 0, agentCount);
+        System.arraycopy(y, 0, this.y, 0, agentCount);
+        System.arraycopy(previousX, 0, this.previousX, 0, agentCount);
+        System.arraycopy(previousY, 0, this.previousY, 0, agentCount);
+        System.arraycopy(team, 0, this.team, 0, agentCount);
+        System.arraycopy(counts, 0, this.counts, 0, this.counts.length);
+        bucketByCell();
+        densityBuilt = false;
+    }
+
+    /**
+     * Gives the frame a density field to fill in {@link #buildDensity()}.
+     * @param density   field covering the world of this frame with a color for each of its teams, or null.
+     */
+    public void setDensityField(DensityField density) {
+        if (density != null && density.getTeamCount() != counts.length) {
+            throw new IllegalArgumentException("the density field has colors for " + density.getTeamCount()
+                    + " teams, the frame " + counts.length);
+        }
+        this.density = density;
+        densityBuilt = false;
+    }
+
+    /**
+     * Fills the density field from the agents of this frame. Called on the simulation thread after the
+     * frame was written, the field is valid until the frame is written again.
+     */
+    public void buildDensity() {
+        if (density != null) {
+            density.build(this);
+            densityBuilt = true;
+        }
+    }
+
+    /**
+     * @return The density field of this frame, or null if it was not built since the frame was written.
+     */
+    public DensityField getDensity() {
+        return densityBuilt ? density : null;
+    }
+
+    /**
+     * Counting sort of the agents by the cell of their current position.
+     */
+    private void bucketByCell() {
+        int cells = columns * rows;
+        Arrays.fill(cellStart, 0);
+        maxMove = 0;
+        for (int i = 0; i < agentCount; i++) {
+            cellStart[cellOf(i)]++;
+            maxMove = Math.max(maxMove, Math.max(Math.abs(x[i] - previousX[i]), Math.abs(y[i] - previousY[i])));
+        }
+        // turn the counts into the end of every cell, then fill each cell from its end
+        for (int cell = 1; cell < cells; cell++) {
+            cellStart[cell] += cellStart[cell - 1];
+        }
+        cellStart[cells] = agentCount;
+        for (int i = agentCount - 1; i >= 0; i--) {
+            cellAgents[--cellStart[cellOf(i)]] = i;
+        }
+    }
+
+    private int cellOf(int i) {
+        return getRow(y[i]) * columns + getColumn(x[i]);
+    }
+
+    /**
+     * @param x X coordinate in the world.
+     * @return  Grid column of the coordinate, clamped to the grid.
+     */
+    int getColumn(float x) {
+        return Math.max(0, Math.min(columns - 1, (int) Math.floor(x / cellSize)));
+    }
+
+    /**
+     * @param y Y coordinate in the world.
+     * @return  Grid row of the coordinate, clamped to the grid.
+     */
+    int getRow(float y) {
+        return Math.max(0, Math.min(rows - 1, (int) Math.floor(y / cellSize)));
+    }
+
+    /**
+     * @return Largest distance an agent moved on either axis in the last tick. Agents are bucketed
+     * by their position after the tick, so interpolated positions can be this far from their cell.
+     */
+    float getMaxMove() {
+        return maxMove;
+    }
+
+    int getColumns() {
+        return columns;
+    }
+
+    /**
+     * @return Index of the first agent of a cell in {@link #getCellAgent(int)}. The cells are row by row,
+     * and the agents of a cell end where the next cell starts.
+     */
+    int getCellStart(int cell) {
+        return cellStart[cell];
+    }
+
+    int getCellAgent(int index) {
+        return cellAgents[index];
+    }
+
+    public int getAgentCount() {
+        return agentCount;
+    }
+
+    /**
+     * @return Tick of the world when the frame was written.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return System.nanoTime() when the frame was written.
+     */
+    public long getPublishNanos() {
+        return publishNanos;
+    }
+
+    /**
+     * @return The winning team at the time of the frame, or null.
+     */
+    public Team getWinner() {
+        return winner;
+    }
+
+    /**
+     * Interpolates the X coordinate of an agent between the last two ticks.
+     * @param index Index of the agent.
+     * @param alpha 0 for the position before the tick, 1 for the position after it.
+     * @return      The interpolated X coordinate.
+     */
+    public float getX(int index, float alpha) {
+        return previousX[index] + (x[index] - previousX[index]) * alpha;
+    }
+
+    /**
+     * Interpolates the Y coordinate of an agent between the last two ticks.
+     * @param index Index of the agent.
+     * @param alpha 0 for the position before the tick, 1 for the position after it.
+     * @return      The interpolated Y coordinate.
+     */
+    public float getY(int index, float alpha) {
+        return previousY[index] + (y[index] - previousY[index]) * alpha;
+    }
+
+    /**
+     * @param index Index of the agent.
+     * @return      Team of the agent.
+     * @throws IllegalArgumentException if the agent is in a team past the classic ones, see
+     *              {@link #getTeamNumber(int)}.
+     */
+    public Team getTeam(int index) {
+        return Team.of(team[index]);
+    }
+
+    /**
+     * @param index Index of the agent.
+     * @return      Number of the agent's team.
+     */
+    public int getTeamNumber(int index) {
+        return team[index];
+    }
+
+    /**
+     * @return Number of teams in the world of the frame.
+     */
+    public int getTeamCount() {
+        return counts.length;
+    }
+
+    /**
+     * @param team  Team to be counted.
+     * @return      Number of agents in the team at the time of the frame.
+     */
+    public int count(Team team) {
+        return counts[team.ordinal()];
+    }
+
+    /**
+     * @param team  number of the team to count.
+     * @return      Number of agents in the team at the time of the frame.
+     */
+    public int count(int team) {
+        return counts[team];
+    }
+}
@@ -0,0 +1,298 @@
+package com.android.rockpaperscissors.engine;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.util.Arrays;
+
+/**
+ * A recorded match, read from the format written by {@link ReplayWriter}.
+ * <p>
+ * Team populations at any tick come straight from the conversion log. Positions are not stored:
+ * {@link #seek(long)} plays the match again from its seed up to the requested tick, which gives
+ * exactly the recorded match because the world is deterministic, with the retarget interval changes
+ * of the recording applied at the same ticks.
+ */
+public class Replay {
+
+    // "RPSR"
+    static final int MAGIC = 0x52505352;
+    // earlier versions were recorded with a spawn that is gone, so they would not play the same match
+    static final byte VERSION = 3;
+
+    private final long seed;
+    private final int width, height, groupSize, speed, agentSize;
+    private final SpawnStrategy[] spawnStrategies;
+    private final int conversionCount;
+    private final long[] conversionTicks;
+    private final int[] conversionAgents;
+    // populations after conversion c are at [c * Team.count() + team]
+    private final int[] populations;
+    private final long finalTick;
+    private final long[] retargetTicks;
+    private final int[] retargetIntervals;
+
+    private Replay(ByteBuffer data) throws IOException {
+        if (data.getInt() != MAGIC) {
+            throw new IOException("not a replay file");
+        }
+        byte version = data.get();
+        if (version != VERSION) {
+            throw new IOException("unsupported replay version " + version);
+        }
+        int tickRate = data.getInt();
+        if (tickRate != World.TICK_RATE) {
+            throw new IOException("replay was recorded at " + tickRate + " ticks per second");
+        }
+        seed = data.getLong();
+        width = data.getInt();
+        height = data.getInt();
+        groupSize = data.getInt();
+        speed = data.getInt();
+        agentSize = data.getInt();
+        spawnStrategies = new SpawnStrategy[Team.count()];
+        for (int t = 0; t < spawnStrategies.length; t++) {
+            int strategy = data.get();
+            if (strategy < 0 || strategy >= SpawnStrategy.values().length) {
+                throw new IOException("unknown spawn strategy " + strategy);
+            }
+            spawnStrategies[t] = SpawnStrategy.of(strategy);
+        }
+
+        int agentCount = groupSize * Team.count();
+        byte[] team = new byte[agentCount];
+        for (int i = 0; i < agentCount; i++) {
+            team[i] = (byte) (i / groupSize);
+        }
+        int[] counts = new int[Team.count()];
+        Arrays.fill(counts, groupSize);
+
+        long[] ticks = new long[64];
+        int[] agents = new int[64];
+        int[] populations = new int[64 * Team.count()];
+        int count = 0;
+        long tick = 0;
+        while (true) {
+            tick += getVarLong(data);
+            long agent = getVarLong(data) - 1;
+            if (agent < 0) {
+                break;
+            }
+            if (agent >= agentCount) {
+                throw new IOException("conversion of agent " + agent + " out of " + agentCount);
+            }
+            if (count == ticks.length) {
+                ticks = Arrays.copyOf(ticks, count * 2);
+                agents = Arrays.copyOf(agents, count * 2);
+                populations = Arrays.copyOf(populations, count * 2 * Team.count());
+            }
+            Team from = Team.of(team[(int) agent]);
+            Team to = from.hunter();
+            team[(int) agent] = (byte) to.ordinal();
+            counts[from.ordinal()]--;
+            counts[to.ordinal()]++;
+            ticks[count] = tick;
+            agents[count] = (int) agent;
+            System.arraycopy(counts, 0, populations, count * Team.count(), Team.count());
+            count++;
+        }
+        conversionCount = count;
+        conversionTicks = ticks;
+        conversionAgents = agents;
+        this.populations = populations;
+        finalTick = tick;
+
+        int changes = (int) getVarLong(data);
+        if (changes < 0 || changes > data.remaining()) {
+            throw new IOException("malformed replay");
+        }
+        retargetTicks = new long[changes];
+        retargetIntervals = new int[changes];
+        long changeTick = 0;
+        for (int c = 0; c < changes; c++) {
+            changeTick += getVarLong(data);
+            long interval = getVarLong(data);
+            if (interval <= 0 || interval > Integer.MAX_VALUE) {
+                throw new IOException("retarget interval " + interval + " out of range");
+            }
+            retargetTicks[c] = changeTick;
+            retargetIntervals[c] = (int) interval;
+        }
+    }
+
+    /**
+     * Reads a whole replay.
+     * @param channel   channel to read from, it is read to the end but not closed.
+     * @return          The replay.
+     * @throws IOException if reading fails or the data is not a complete replay.
+     */
+    public static Replay read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer data = ByteBuffer.allocate(4096);
+        while (channel.read(data) >= 0) {
+            if (!data.hasRemaining()) {
+                ByteBuffer larger = ByteBuffer.allocate(data.capacity() * 2);
+                data.flip();
+                larger.put(data);
+                data = larger;
+            }
+        }
+        data.flip();
+        try {
+            return new Replay(data);
+        } catch (BufferUnderflowException e) {
+            throw new EOFException("replay is truncated");
+        }
+    }
+
+    /**
+     * Creates the world of the match as it was before the first tick.
+     * @return A new world with the recorded seed and settings.
+     */
+    public World createWorld() {
+        return new World(width, height, groupSize, speed, agentSize, seed, spawnStrategies);
+    }
+
+    /**
+     * Plays the match again up to a tick.
+     * @param tick  tick to stop at, between 0 and {@link #getFinalTick()}.
+     * @return      A new world at the given tick.
+     */
+    public World seek(long tick) {
+        if (tick < 0 || tick > finalTick) {
+            throw new IllegalArgumentException("tick " + tick + " is outside of the replay");
+        }
+        World world = createWorld();
+        int change = 0;
+        while (true) {
+            while (change < retargetTicks.length && retargetTicks[change] == world.getTick()) {
+                world.setRetargetInterval(retargetIntervals[change++]);
+            }
+            if (world.getTick() >= tick) {
+                return world;
+            }
+            world.step(1f / World.TICK_RATE);
+        }
+    }
+
+    /**
+     * Counts a team at a tick from the conversion log, without playing the match.
+     * @param team  team to count.
+     * @param tick  tick to count at, the same as {@link World#getTick()} of the world returned by {@link #seek(long)}.
+     * @return      Number of agents in the team at the tick.
+     */
+    public int count(Team team, long tick) {
+        int converted = conversionsBefore(tick);
+        return converted == 0 ? groupSize : populations[(converted - 1) * Team.count() + team.ordinal()];
+    }
+
+    /**
+     * @return The team that had every agent at the end of the recording, or null if it was stopped before.
+     */
+    public Team getWinner() {
+        for (int t = 0; t < Team.count(); t++) {
+            if (count(Team.of(t), finalTick) == groupSize * Team.count()) {
+                return Team.of(t);
+            }
+        }
+        return null;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getGroupSize() {
+        return groupSize;
+    }
+
+    public int getSpeed() {
+        return speed;
+    }
+
+    public int getAgentSize() {
+        return agentSize;
+    }
+
+    /**
+     * @return Spawn strategy of every team, indexed by Team ordinal.
+     */
+    public SpawnStrategy[] getSpawnStrategies() {
+        return spawnStrategies.clone();
+    }
+
+    /**
+     * @return Tick the recording ended at.
+     */
+    public long getFinalTick() {
+        return finalTick;
+    }
+
+    /**
+     * @return Number of retarget interval changes during the recording.
+     */
+    public int getRetargetChanges() {
+        return retargetTicks.length;
+    }
+
+    public int getConversionCount() {
+        return conversionCount;
+    }
+
+    /**
+     * @param conversion    index of the conversion, in the order they happened.
+     * @return              Tick of the step the conversion happened in, as in its {@link ConversionBatch}.
+     */
+    public long getConversionTick(int conversion) {
+        return conversionTicks[conversion];
+    }
+
+    /**
+     * @param conversion    index of the conversion, in the order they happened.
+     * @return              Index of the eaten agent.
+     */
+    public int getConversionAgent(int conversion) {
+        return conversionAgents[conversion];
+    }
+
+    /**
+     * @return Number of conversions that happened in the steps before the tick.
+     */
+    private int conversionsBefore(long tick) {
+        int low = 0;
+        int high = conversionCount;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (conversionTicks[middle] < tick) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Reads an unsigned LEB128 integer written by {@link ReplayWriter}.
+     */
+    private static long getVarLong(ByteBuffer data) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = data.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IOException("malformed replay");
+    }
+}
@@ -0,0 +1,167 @@
+package com.android.rockpaperscissors.engine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Records a match into the replay format read by {@link Replay}.
+ * <p>
+ * The world is deterministic for a given seed, so a replay only holds the seed and settings of the
+ * world, including the spawn strategy of every team, and the log of its conversions, without any positions. Each conversion is stored as the
+ * number of ticks since the previous conversion and the index of the eaten agent, both as variable
+ * length integers. The team the agent joins follows from its current team, so a conversion usually
+ * takes two or three bytes. The log ends with the retarget schedule of the world (see
+ * {@link World#setRetargetInterval(int)}), as the number of changes followed by the ticks since the
+ * previous change and the new interval.
+ * <p>
+ * Conversions are collected in a buffer and written to the channel when it is full, so the
+ * simulation thread only does I/O every few thousand conversions.
+ */
+public class ReplayWriter implements World.ConversionListener, Closeable {
+
+    private static final int BUFFER_SIZE = 4096;
+    // largest record: two variable length longs
+    private static final int MAX_RECORD_SIZE = 20;
+
+    private final World world;
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+    private long lastTick;
+    private boolean recordedAny;
+    // conversions up to this tick are already in the log, after the world was restored to an earlier tick
+    private long skipThroughTick = -1;
+    private long furthestTick;
+    private IOException error;
+    private boolean closed;
+
+    /**
+     * Starts a replay of a world that has not been stepped yet, and subscribes to its conversions.
+     * @param world     world to record, of the {@link Dominance#CLASSIC} teams, where the team an
+     *                  eaten agent joins follows from its current team.
+     * @param channel   channel to write to, it is closed with the writer.
+     * @throws IOException if the header can not be written.
+     */
+    public ReplayWriter(World world, WritableByteChannel channel) throws IOException {
+        if (world.getTick() != 0) {
+            throw new IllegalArgumentException("a replay has to start at the first tick");
+        }
+        if (!Dominance.CLASSIC.equals(world.getDominance())) {
+            throw new IllegalArgumentException("replays only hold worlds of the classic teams");
+        }
+        this.world = world;
+        this.channel = channel;
+        buffer.putInt(Replay.MAGIC);
+        buffer.put(Replay.VERSION);
+        buffer.putInt(World.TICK_RATE);
+        buffer.putLong(world.getSeed());
+        buffer.putInt(world.getWidth());
+        buffer.putInt(world.getHeight());
+        buffer.putInt(world.getGroupSize());
+        buffer.putInt(world.getSpeed());
+        buffer.putInt(world.getAgentSize());
+        for (SpawnStrategy strategy : world.getSpawnStrategies()) {
+            buffer.put((byte) strategy.ordinal());
+        }
+        flush();
+        world.addConversionListener(this);
+    }
+
+    @Override
+    public void onConversions(ConversionBatch batch) {
+        long tick = batch.getTick();
+        if (closed || tick <= skipThroughTick) {
+            return;
+        }
+        for (int c = 0; c < batch.size() && error == null; c++) {
+            putVarLong(tick - lastTick);
+            // 0 marks the end of the log
+            putVarLong(batch.getAgent(c) + 1);
+            lastTick = tick;
+            recordedAny = true;
+            if (buffer.remaining() < MAX_RECORD_SIZE) {
+                try {
+                    flush();
+                } catch (IOException e) {
+                    // the step can not be interrupted, the error is reported by close()
+                    error = e;
+                }
+            }
+        }
+    }
+
+    /**
+     * Call before the world is restored to an earlier tick, for example from a {@link CheckpointRing}.
+     * The match plays the same way again, so the conversions that are already in the log are skipped
+     * when they happen again, and the log continues after them.
+     */
+    public void rewind() {
+        furthestTick = Math.max(furthestTick, world.getTick());
+        if (recordedAny) {
+            skipThroughTick = lastTick;
+        }
+    }
+
+    /**
+     * Ends the log at the furthest tick the world reached, unsubscribes and closes the channel.
+     * Further calls do nothing.
+     * @throws IOException if any write failed since the writer was created.
+     */
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        world.removeConversionListener(this);
+        try {
+            if (error == null) {
+                putVarLong(Math.max(furthestTick, world.getTick()) - lastTick);
+                putVarLong(0);
+                putSchedule();
+                flush();
+            }
+        } finally {
+            channel.close();
+        }
+        if (error != null) {
+            throw error;
+        }
+    }
+
+    private void putSchedule() throws IOException {
+        long[] ticks = world.getRetargetTicks();
+        int[] intervals = world.getRetargetIntervals();
+        int changes = world.getRetargetChanges();
+        putVarLong(changes);
+        long previous = 0;
+        for (int c = 0; c < changes; c++) {
+            if (buffer.remaining() < MAX_RECORD_SIZE) {
+                flush();
+            }
+            putVarLong(ticks[c] - previous);
+            putVarLong(intervals[c]);
+            previous = ticks[c];
+        }
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Writes an unsigned LEB128 integer: 7 bits per byte, low bits first, high bit set on all but the last byte.
+     */
+    private void putVarLong(long value) {
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+}
@@ -0,0 +1,78 @@
+package com.android.rockpaperscissors.engine;
+
+/**
+ * Seeded, splittable, counter based random number generator.
+ * <p>
+ * A value is a SplitMix64 hash of the seed, a stream and a counter, so there is no state to update:
+ * every agent has its own stream, and the value for a given agent and tick is the same whichever
+ * thread asks for it and in whatever order. A match can therefore be reproduced, or resumed at any
+ * tick, from its seed alone.
+ */
+public final class Rng {
+
+    // 2^64 divided by the golden ratio, the SplitMix64 increment
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+    private static final float FLOAT_UNIT = 0x1.0p-24f;
+
+    private final long seed;
+
+    /**
+     * Create a generator.
+     * @param seed  seed of every stream.
+     */
+    public Rng(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Creates an independent generator, for example to give a subsystem its own random numbers
+     * without shifting the values of the existing streams.
+     * @param stream    id of the new generator.
+     * @return          A generator whose values are unrelated to this one's.
+     */
+    public Rng split(long stream) {
+        return new Rng(nextLong(stream, -1));
+    }
+
+    /**
+     * @param stream    id of the stream, for example an agent index.
+     * @param counter   position in the stream, for example a tick.
+     * @return          Uniformly distributed 64 bits.
+     */
+    public long nextLong(long stream, long counter) {
+        return mix(mix(seed + (stream + 1) * GOLDEN_GAMMA) + (counter + 1) * GOLDEN_GAMMA);
+    }
+
+    /**
+     * @param stream    id of the stream.
+     * @param counter   position in the stream.
+     * @param bound     upper bound, must be positive.
+     * @return          Uniformly distributed int between 0 inclusive and bound exclusive.
+     */
+    public int nextInt(long stream, long counter, int bound) {
+        // the high 32 bits scaled to the bound, biased by less than bound / 2^32
+        return (int) (((nextLong(stream, counter) >>> 32) * bound) >>> 32);
+    }
+
+    /**
+     * @param stream    id of the stream.
+     * @param counter   position in the stream.
+     * @return          Uniformly distributed float between -1 inclusive and 1 exclusive.
+     */
+    public float nextSignedFloat(long stream, long counter) {
+        return (nextLong(stream, counter) >>> 40) * FLOAT_UNIT * 2 - 1;
+    }
+
+    /**
+     * SplitMix64 finalizer.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
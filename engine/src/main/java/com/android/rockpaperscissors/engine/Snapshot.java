@@ -0,0 +1,194 @@
+package com.android.rockpaperscissors.engine;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Binary copy of a world at one tick, enough to continue the match exactly as it would have gone on.
+ * <p>
+ * A snapshot holds the settings, spawn strategies and seed of the world, the tick, the positions,
+ * teams and targets of every agent, the retarget interval and the broad phase order, about 29 bytes
+ * per agent. Random numbers are keyed by the tick, so restoring the tick also restores the random
+ * numbers. The buffer is allocated once and {@link #capture(World)} overwrites it, so keeping
+ * keyframes does not allocate while the match runs. Snapshots hold worlds of the
+ * {@link Dominance#CLASSIC} teams only.
+ */
+public class Snapshot {
+
+    // "RPSS"
+    private static final int MAGIC = 0x52505353;
+    private static final byte VERSION = 4;
+    // magic, version and tick rate come before the seed, the five int settings and the spawn strategies
+    private static final int SETTINGS_OFFSET = 4 + 1 + 4;
+    private static final int GROUP_SIZE_OFFSET = SETTINGS_OFFSET + 8 + 2 * 4;
+    private static final int HEADER_SIZE = SETTINGS_OFFSET + 8 + 5 * 4 + Team.count();
+
+    private final ByteBuffer data;
+    private long tick = -1;
+
+    /**
+     * Create an empty snapshot sized for a world.
+     * @param world world to take snapshots of, or any world with the same settings.
+     */
+    public Snapshot(World world) {
+        if (!Dominance.CLASSIC.equals(world.getDominance())) {
+            throw new IllegalArgumentException("snapshots only hold worlds of the classic teams");
+        }
+        data = ByteBuffer.allocate(HEADER_SIZE + world.getStateSize());
+    }
+
+    private Snapshot(ByteBuffer data) {
+        this.data = data;
+    }
+
+    /**
+     * Overwrites the snapshot with the current state of a world.
+     * @param world world with the settings the snapshot was created for.
+     */
+    public void capture(World world) {
+        if (HEADER_SIZE + world.getStateSize() != data.capacity()) {
+            throw new IllegalArgumentException("snapshot was created for a different world");
+        }
+        data.clear();
+        data.putInt(MAGIC);
+        data.put(VERSION);
+        data.putInt(World.TICK_RATE);
+        data.putLong(world.getSeed());
+        data.putInt(world.getWidth());
+        data.putInt(world.getHeight());
+        data.putInt(world.getGroupSize());
+        data.putInt(world.getSpeed());
+        data.putInt(world.getAgentSize());
+        for (SpawnStrategy strategy : world.getSpawnStrategies()) {
+            data.put((byte) strategy.ordinal());
+        }
+        world.saveState(data);
+        data.flip();
+        tick = world.getTick();
+    }
+
+    /**
+     * Puts a world back into the captured state. Listeners of the world stay subscribed.
+     * @param world world with the same seed and settings as the captured one.
+     */
+    public void restore(World world) {
+        if (tick < 0) {
+            throw new IllegalStateException("nothing captured yet");
+        }
+        ByteBuffer in = data.duplicate();
+        in.position(SETTINGS_OFFSET);
+        if (in.getLong() != world.getSeed() || in.getInt() != world.getWidth() || in.getInt() != world.getHeight()
+                || in.getInt() != world.getGroupSize() || in.getInt() != world.getSpeed()
+                || in.getInt() != world.getAgentSize()) {
+            throw new IllegalArgumentException("snapshot was taken of a different world");
+        }
+        // the spawn only shows in the positions, which are restored, so only a replay keeps it
+        in.position(HEADER_SIZE);
+        world.loadState(in);
+    }
+
+    /**
+     * Creates a new world in the captured state.
+     * @return The world, as if it had been played from its seed up to the captured tick.
+     */
+    public World createWorld() {
+        ByteBuffer in = data.duplicate();
+        in.position(SETTINGS_OFFSET);
+        long seed = in.getLong();
+        int width = in.getInt();
+        int height = in.getInt();
+        int groupSize = in.getInt();
+        int speed = in.getInt();
+        int agentSize = in.getInt();
+        SpawnStrategy[] strategies = new SpawnStrategy[Team.count()];
+        for (int t = 0; t < strategies.length; t++) {
+            strategies[t] = SpawnStrategy.of(in.get());
+        }
+        World world = new World(width, height, groupSize, speed, agentSize, seed, strategies);
+        restore(world);
+        return world;
+    }
+
+    /**
+     * @return Tick of the captured world, or -1 if nothing was captured yet.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return Size of the snapshot in bytes.
+     */
+    public int getSize() {
+        return data.capacity();
+    }
+
+    /**
+     * @param world world to take snapshots of.
+     * @return      Size of a snapshot of the world in bytes, to budget keyframes before allocating them.
+     */
+    public static int getSize(World world) {
+        return HEADER_SIZE + world.getStateSize();
+    }
+
+    /**
+     * Writes the snapshot, for example to keep a paused match across restarts.
+     * @param channel   channel to write to, it is not closed.
+     * @throws IOException if writing fails.
+     */
+    public void writeTo(WritableByteChannel channel) throws IOException {
+        ByteBuffer out = data.duplicate();
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+    }
+
+    /**
+     * Reads a snapshot written by {@link #writeTo(WritableByteChannel)}.
+     * @param channel   channel to read from, it is not closed.
+     * @return          The snapshot.
+     * @throws IOException if reading fails or the data is not a snapshot.
+     */
+    public static Snapshot read(ReadableByteChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(channel, header);
+        if (header.getInt(0) != MAGIC) {
+            throw new IOException("not a snapshot file");
+        }
+        if (header.get(4) != VERSION) {
+            throw new IOException("unsupported snapshot version " + header.get(4));
+        }
+        if (header.getInt(5) != World.TICK_RATE) {
+            throw new IOException("snapshot was taken at " + header.getInt(5) + " ticks per second");
+        }
+        int groupSize = header.getInt(GROUP_SIZE_OFFSET);
+        if (groupSize <= 0 || groupSize > (Integer.MAX_VALUE - HEADER_SIZE) / World.getStateSize(Team.count())) {
+            throw new IOException("malformed snapshot");
+        }
+        for (int t = 0; t < Team.count(); t++) {
+            int strategy = header.get(HEADER_SIZE - Team.count() + t);
+            if (strategy < 0 || strategy >= SpawnStrategy.values().length) {
+                throw new IOException("unknown spawn strategy " + strategy);
+            }
+        }
+        ByteBuffer data = ByteBuffer.allocate(HEADER_SIZE + World.getStateSize(groupSize * Team.count()));
+        header.flip();
+        data.put(header);
+        readFully(channel, data);
+        data.flip();
+        Snapshot snapshot = new Snapshot(data);
+        snapshot.tick = data.getLong(HEADER_SIZE);
+        return snapshot;
+    }
+
+    private static void readFully(ReadableByteChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("snapshot is truncated");
+            }
+        }
+    }
+}
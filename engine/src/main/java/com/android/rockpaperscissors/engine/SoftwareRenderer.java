@@ -0,0 +1,108 @@
+package com.android.rockpaperscissors.engine;
+
+import java.util.Arrays;
+
+/**
+ * CPU rasterizer for a {@link SpriteBatch}.
+ * Draws every quad of the batch into an ARGB pixel buffer with source-over blending, so the
+ * whole frame can be uploaded and drawn as a single bitmap. It is the fallback when batched
+ * vertex drawing is not available, and it runs without Android, so the output can be tested.
+ * Sprites are snapped to whole pixels, and scaled with nearest neighbour sampling when they are
+ * drawn at a different size than in the atlas.
+ */
+public class SoftwareRenderer {
+
+    private final int width, height;
+    private final int[] pixels;
+
+    /**
+     * Create a renderer with its own pixel buffer.
+     * @param width     width of the output in pixels.
+     * @param height    height of the output in pixels.
+     */
+    public SoftwareRenderer(int width, int height) {
+        this.width = width;
+        this.height = height;
+        pixels = new int[width * height];
+    }
+
+    /**
+     * Fills the whole output with a color.
+     * @param color ARGB color.
+     */
+    public void clear(int color) {
+        Arrays.fill(pixels, color);
+    }
+
+    /**
+     * Draws every sprite of the batch in order.
+     * @param batch         sprites to draw.
+     * @param atlas         ARGB pixels of the atlas, not premultiplied.
+     * @param atlasWidth    width of the atlas in pixels.
+     */
+    public void draw(SpriteBatch batch, int[] atlas, int atlasWidth) {
+        float[] vertices = batch.getVertices();
+        float[] texCoords = batch.getTexCoords();
+        int size = batch.getSpriteSize();
+        for (int sprite = 0; sprite < batch.getSpriteCount(); sprite++) {
+            int offset = sprite * SpriteBatch.VERTICES_PER_SPRITE * 2;
+            int left = Math.round(vertices[offset]);
+            int top = Math.round(vertices[offset + 1]);
+            // the top-right corner gives the size on screen
+            int screenSize = Math.round(vertices[offset + 2]) - left;
+            blit(atlas, atlasWidth, (int) texCoords[offset], (int) texCoords[offset + 1], size,
+                    left, top, screenSize);
+        }
+    }
+
+    /**
+     * Blends a square of the atlas onto the output, scaled to a square of screenSize pixels and
+     * clipped to the output bounds.
+     */
+    private void blit(int[] atlas, int atlasWidth, int u, int v, int size, int left, int top, int screenSize) {
+        int fromX = Math.max(0, -left);
+        int fromY = Math.max(0, -top);
+        int toX = Math.min(screenSize, width - left);
+        int toY = Math.min(screenSize, height - top);
+        for (int row = fromY; row < toY; row++) {
+            int source = (v + row * size / screenSize) * atlasWidth + u;
+            int target = (top + row) * width + left;
+            for (int column = fromX; column < toX; column++) {
+                pixels[target + column] = blend(atlas[source + column * size / screenSize], pixels[target + column]);
+            }
+        }
+    }
+
+    /**
+     * Source-over blending of a non-premultiplied source onto an opaque destination.
+     */
+    static int blend(int source, int destination) {
+        int alpha = source >>> 24;
+        if (alpha == 0xFF) {
+            return source;
+        }
+        if (alpha == 0) {
+            return destination;
+        }
+        int inverse = 0xFF - alpha;
+        int red = (((source >> 16) & 0xFF) * alpha + ((destination >> 16) & 0xFF) * inverse + 127) / 255;
+        int green = (((source >> 8) & 0xFF) * alpha + ((destination >> 8) & 0xFF) * inverse + 127) / 255;
+        int blue = ((source & 0xFF) * alpha + (destination & 0xFF) * inverse + 127) / 255;
+        return 0xFF000000 | (red << 16) | (green << 8) | blue;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return ARGB output, row by row. Owned by the renderer and overwritten by the next frame.
+     */
+    public int[] getPixels() {
+        return pixels;
+    }
+}
@@ -0,0 +1,290 @@
+package com.android.rockpaperscissors.engine;
+
+import java.util.Arrays;
+
+/**
+ * Uniform grid spatial index over agents.
+ * Agents are identified by their index in the world, so an entry can be
+ * moved, removed or inserted in O(1) while the simulation runs.
+ * Nearest-neighbour queries use an expanding ring search around the query cell.
+ * <p>
+ * A grid can hold the agents of several teams, every cell keeping a list per team. A search for the
+ * nearest agent of a set of teams only walks the lists of those teams, and {@link #nearestOfTeams}
+ * finds the nearest agents of two sets of teams in a single search, so looking up an agent's nearest
+ * hunter and prey costs about one lookup however many teams hunt it or are hunted by it.
+ */
+public class SpatialGrid {
+
+    private static final int NONE = -1;
+
+    private final float cellSize;
+    private final int columns, rows, teams;
+    private final int allTeams;
+    // list heads indexed by cell * teams + team, so the lists of a cell are next to each other
+    private final int[] listHeads;
+    private final int[] next, previous, listOf;
+    private final byte[] teamOf;
+    private final float[] xs, ys;
+
+    /**
+     * Create an empty grid of a single team.
+     * @param capacity  maximum number of ids (ids are in the range 0..capacity-1).
+     * @param width     width of the indexed area.
+     * @param height    height of the indexed area.
+     * @param cellSize  edge length of a single grid cell.
+     */
+    public SpatialGrid(int capacity, float width, float height, float cellSize) {
+        this(capacity, width, height, cellSize, 1);
+    }
+
+    /**
+     * Create an empty grid.
+     * @param capacity  maximum number of ids (ids are in the range 0..capacity-1).
+     * @param width     width of the indexed area.
+     * @param height    height of the indexed area.
+     * @param cellSize  edge length of a single grid cell.
+     * @param teams     number of teams, at most {@link Dominance#MAX_TEAMS}.
+     */
+    public SpatialGrid(int capacity, float width, float height, float cellSize, int teams) {
+        if (teams < 1 || teams > Dominance.MAX_TEAMS) {
+            throw new IllegalArgumentException("a grid holds 1 to " + Dominance.MAX_TEAMS + " teams");
+        }
+        this.cellSize = cellSize;
+        this.teams = teams;
+        allTeams = teams == Dominance.MAX_TEAMS ? -1 : (1 << teams) - 1;
+        columns = Math.max(1, (int) Math.ceil(width / cellSize));
+        rows = Math.max(1, (int) Math.ceil(height / cellSize));
+        listHeads = new int[columns * rows * teams];
+        next = new int[capacity];
+        previous = new int[capacity];
+        listOf = new int[capacity];
+        teamOf = new byte[capacity];
+        xs = new float[capacity];
+        ys = new float[capacity];
+        clear();
+    }
+
+    /**
+     * Removes every entry from the grid.
+     */
+    public void clear() {
+        Arrays.fill(listHeads, NONE);
+        Arrays.fill(listOf, NONE);
+    }
+
+    /**
+     * Checks if an id is currently stored in the grid.
+     * @param id    id of the entry.
+     * @return      true if the id is in the grid.
+     */
+    public boolean contains(int id) {
+        return listOf[id] != NONE;
+    }
+
+    /**
+     * Adds an entry of the first team to the grid.
+     * @param id    id of the entry, must not be in the grid already.
+     * @param x     X coordinate of the entry.
+     * @param y     Y coordinate of the entry.
+     */
+    public void insert(int id, float x, float y) {
+        insert(id, 0, x, y);
+    }
+
+    /**
+     * Adds an entry to the grid.
+     * @param id    id of the entry, must not be in the grid already.
+     * @param team  team of the entry.
+     * @param x     X coordinate of the entry.
+     * @param y     Y coordinate of the entry.
+     */
+    public void insert(int id, int team, float x, float y) {
+        xs[id] = x;
+        ys[id] = y;
+        teamOf[id] = (byte) team;
+        link(id, cellIndex(x, y) * teams + team);
+    }
+
+    /**
+     * Removes an entry from the grid. Does nothing if the id is not in the grid.
+     * @param id    id of the entry.
+     */
+    public void remove(int id) {
+        if (listOf[id] == NONE) {
+            return;
+        }
+        unlink(id);
+    }
+
+    /**
+     * Updates the coordinates of an entry, moving it to another cell if needed.
+     * @param id    id of the entry, must be in the grid.
+     * @param x     new X coordinate.
+     * @param y     new Y coordinate.
+     */
+    public void move(int id, float x, float y) {
+        xs[id] = x;
+        ys[id] = y;
+        int list = cellIndex(x, y) * teams + teamOf[id];
+        if (list != listOf[id]) {
+            unlink(id);
+            link(id, list);
+        }
+    }
+
+    /**
+     * Moves an entry to another team, keeping its position.
+     * @param id    id of the entry, must be in the grid.
+     * @param team  new team of the entry.
+     */
+    public void setTeam(int id, int team) {
+        int cell = listOf[id] / teams;
+        unlink(id);
+        teamOf[id] = (byte) team;
+        link(id, cell * teams + team);
+    }
+
+    /**
+     * Finds the entry closest to a point, of any team.
+     * Ties are broken by the lower id, the same as a linear scan over the agents.
+     * @param x         X coordinate of the query point.
+     * @param y         Y coordinate of the query point.
+     * @param excludeId id that should be ignored (the querying agent itself), or -1.
+     * @return          id of the closest entry, or -1 if the grid is empty.
+     */
+    public int nearest(float x, float y, int excludeId) {
+        return first(nearestOfTeams(x, y, excludeId, allTeams, 0));
+    }
+
+    /**
+     * Finds the entries closest to a point among two sets of teams at once, for example the nearest
+     * hunter and the nearest prey of an agent. Each set of teams is only scanned until its entry is
+     * found, so the search costs about as much as two separate searches without walking the rings
+     * twice. Ties are broken by the lower id, so each
+     * result is the same as {@link #nearest} over a grid of only that set's teams.
+     * @param x             X coordinate of the query point.
+     * @param y             Y coordinate of the query point.
+     * @param excludeId     id that should be ignored (the querying agent itself), or -1.
+     * @param firstMask     bit {@code t} is set if the first entry may be of team {@code t}, 0 to not look it up.
+     * @param secondMask    bit {@code t} is set if the second entry may be of team {@code t}, 0 to not look it up.
+     * @return              Both ids packed into a long, read them with {@link #first(long)} and
+     *                      {@link #second(long)}. An id is -1 if the grid has no entry of its teams.
+     */
+    public long nearestOfTeams(float x, float y, int excludeId, int firstMask, int secondMask) {
+        int centerColumn = clamp((int) Math.floor(x / cellSize), columns);
+        int centerRow = clamp((int) Math.floor(y / cellSize), rows);
+        int maxRing = Math.max(columns, rows);
+
+        int closestFirst = NONE, closestSecond = NONE;
+        double firstDistance = Double.POSITIVE_INFINITY, secondDistance = Double.POSITIVE_INFINITY;
+        for (int ring = 0; ring <= maxRing && (firstMask | secondMask) != 0; ring++) {
+            int top = centerRow - ring;
+            int bottom = centerRow + ring;
+            int left = centerColumn - ring;
+            int right = centerColumn + ring;
+
+            for (int row = Math.max(0, top); row <= Math.min(rows - 1, bottom); row++) {
+                // the top and bottom rows of the ring are scanned in full, the rows between only at both ends
+                int step = row == top || row == bottom ? 1 : right - left;
+                for (int column = left; column <= right; column += step) {
+                    if (column < 0 || column >= columns) {
+                        continue;
+                    }
+                    int lists = (row * columns + column) * teams;
+                    for (int wanted = firstMask | secondMask; wanted != 0; wanted &= wanted - 1) {
+                        int team = Integer.numberOfTrailingZeros(wanted);
+                        boolean isFirst = (firstMask & 1 << team) != 0;
+                        boolean isSecond = (secondMask & 1 << team) != 0;
+                        for (int id = listHeads[lists + team]; id != NONE; id = next[id]) {
+                            if (id == excludeId) {
+                                continue;
+                            }
+                            double distance = distanceTo(id, x, y);
+                            if (isFirst && (distance < firstDistance
+                                    || (distance == firstDistance && id < closestFirst))) {
+                                firstDistance = distance;
+                                closestFirst = id;
+                            }
+                            if (isSecond && (distance < secondDistance
+                                    || (distance == secondDistance && id < closestSecond))) {
+                                secondDistance = distance;
+                                closestSecond = id;
+                            }
+                        }
+                    }
+                }
+            }
+
+            // Everything outside the scanned rings is further away than ring * cellSize,
+            // so the teams of an entry closer than that are not scanned any further
+            double ringDistance = ring * (double) cellSize;
+            ringDistance *= ringDistance;
+            if (firstDistance < ringDistance) {
+                firstMask = 0;
+            }
+            if (secondDistance < ringDistance) {
+                secondMask = 0;
+            }
+        }
+        return (long) closestFirst << 32 | closestSecond & 0xFFFFFFFFL;
+    }
+
+    /**
+     * @param pair  ids returned by {@link #nearestOfTeams}.
+     * @return      Id of the closest entry of the first set of teams, or -1.
+     */
+    public static int first(long pair) {
+        return (int) (pair >> 32);
+    }
+
+    /**
+     * @param pair  ids returned by {@link #nearestOfTeams}.
+     * @return      Id of the closest entry of the second set of teams, or -1.
+     */
+    public static int second(long pair) {
+        return (int) pair;
+    }
+
+    /**
+     * Squared distance between an entry and a point.
+     */
+    private double distanceTo(int id, float x, float y) {
+        double dX = xs[id] - x;
+        double dY = ys[id] - y;
+        return dY * dY + dX * dX;
+    }
+
+    private int cellIndex(float x, float y) {
+        int column = clamp((int) Math.floor(x / cellSize), columns);
+        int row = clamp((int) Math.floor(y / cellSize), rows);
+        return row * columns + column;
+    }
+
+    private static int clamp(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    private void link(int id, int list) {
+        int head = listHeads[list];
+        next[id] = head;
+        previous[id] = NONE;
+        if (head != NONE) {
+            previous[head] = id;
+        }
+        listHeads[list] = id;
+        listOf[id] = list;
+    }
+
+    private void unlink(int id) {
+        int list = listOf[id];
+        if (previous[id] != NONE) {
+            next[previous[id]] = next[id];
+        } else {
+            listHeads[list] = next[id];
+        }
+        if (next[id] != NONE) {
+            previous[next[id]] = previous[id];
+        }
+        listOf[id] = NONE;
+    }
+}
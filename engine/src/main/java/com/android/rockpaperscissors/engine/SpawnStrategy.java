@@ -0,0 +1,25 @@
+package com.android.rockpaperscissors.engine;
+
+/**
+ * Where the agents of a team start, see {@link Spawner}.
+ */
+public enum SpawnStrategy {
+    /** Spread over the whole arena, mixed with the other uniform teams. */
+    UNIFORM,
+    /** Packed into one disk at a random spot of the arena. */
+    CLUSTERED,
+    /** Packed into a corner of the arena, the corner of the team's ordinal in the order top left,
+     * top right, bottom right, bottom left. */
+    CORNERS;
+
+    private static final SpawnStrategy[] STRATEGIES = values();
+
+    /**
+     * Gets a strategy by its ordinal without allocating a copy of {@link #values()}.
+     * @param ordinal   ordinal of the strategy.
+     * @return          The strategy.
+     */
+    public static SpawnStrategy of(int ordinal) {
+        return STRATEGIES[ordinal];
+    }
+}
@@ -0,0 +1,156 @@
+package com.android.rockpaperscissors.engine;
+
+/**
+ * Geometry of all sprites of a frame, ready to be drawn in a few batched calls.
+ * Every sprite is a quad of 4 vertices and 2 triangles. Texture coordinates point into a
+ * horizontal atlas where the image of each team is a {@code spriteSize} square at
+ * {@code x = team number * spriteSize}.
+ * Indices are shorts, so a single draw call can cover at most {@link #MAX_SPRITES_PER_DRAW} sprites.
+ * The arrays are reused between frames.
+ */
+public class SpriteBatch {
+
+    public static final int VERTICES_PER_SPRITE = 4;
+    public static final int INDICES_PER_SPRITE = 6;
+    /**
+     * Largest number of sprites whose vertices can be addressed by short indices.
+     */
+    public static final int MAX_SPRITES_PER_DRAW = (Short.MAX_VALUE * 2 + 1) / VERTICES_PER_SPRITE;
+
+    private final int spriteSize;
+    private final float[] vertices, texCoords;
+    private final short[] indices;
+    private int spriteCount;
+
+    /**
+     * Create a batch.
+     * @param capacity      maximum number of sprites.
+     * @param spriteSize    X,Y dimensions of a sprite on screen and in the atlas.
+     */
+    public SpriteBatch(int capacity, int spriteSize) {
+        this.spriteSize = spriteSize;
+        vertices = new float[capacity * VERTICES_PER_SPRITE * 2];
+        texCoords = new float[capacity * VERTICES_PER_SPRITE * 2];
+
+        // the same indices are used for every draw call, relative to the call's first vertex
+        int spritesPerDraw = Math.min(capacity, MAX_SPRITES_PER_DRAW);
+        indices = new short[spritesPerDraw * INDICES_PER_SPRITE];
+        for (int sprite = 0; sprite < spritesPerDraw; sprite++) {
+            int vertex = sprite * VERTICES_PER_SPRITE;
+            int index = sprite * INDICES_PER_SPRITE;
+            indices[index] = (short) vertex;
+            indices[index + 1] = (short) (vertex + 1);
+            indices[index + 2] = (short) (vertex + 2);
+            indices[index + 3] = (short) (vertex + 2);
+            indices[index + 4] = (short) (vertex + 1);
+            indices[index + 5] = (short) (vertex + 3);
+        }
+    }
+
+    /**
+     * Fills the batch with every agent of a frame, in agent order.
+     * @param frame Frame to draw.
+     * @param alpha Interpolation between the last two ticks of the frame.
+     */
+    public void build(RenderFrame frame, float alpha) {
+        spriteCount = frame.getAgentCount();
+        for (int i = 0; i < spriteCount; i++) {
+            float left = frame.getX(i, alpha);
+            float top = frame.getY(i, alpha);
+            float u = frame.getTeamNumber(i) * spriteSize;
+            putQuad(vertices, i, left, top, spriteSize);
+            putQuad(texCoords, i, u, 0, spriteSize);
+        }
+    }
+
+    /**
+     * Fills the batch with the agents that are visible in a viewport, in screen coordinates.
+     * Only the cells of the frame's grid that overlap the viewport are visited, so the cost
+     * depends on the number of visible agents rather than the size of the world.
+     * Sprites are scaled by the zoom of the viewport, their atlas coordinates are not.
+     * @param frame     Frame to draw.
+     * @param alpha     Interpolation between the last two ticks of the frame.
+     * @param viewport  Visible part of the world.
+     */
+    public void build(RenderFrame frame, float alpha, Viewport viewport) {
+        float left = viewport.getLeft();
+        float top = viewport.getTop();
+        float right = viewport.getRight();
+        float bottom = viewport.getBottom();
+        float scale = viewport.getScale();
+        float size = spriteSize * scale;
+
+        // a sprite reaches spriteSize right and down of its position, and its cell is where it ends the tick
+        float reach = spriteSize + frame.getMaxMove();
+        int firstColumn = frame.getColumn(left - reach);
+        int lastColumn = frame.getColumn(right + frame.getMaxMove());
+        int firstRow = frame.getRow(top - reach);
+        int lastRow = frame.getRow(bottom + frame.getMaxMove());
+
+        spriteCount = 0;
+        for (int row = firstRow; row <= lastRow; row++) {
+            int rowStart = row * frame.getColumns();
+            int from = frame.getCellStart(rowStart + firstColumn);
+            // the cells of a row are contiguous
+            int to = frame.getCellStart(rowStart + lastColumn + 1);
+            for (int index = from; index < to; index++) {
+                int i = frame.getCellAgent(index);
+                float x = frame.getX(i, alpha);
+                float y = frame.getY(i, alpha);
+                if (x + spriteSize < left || x > right || y + spriteSize < top || y > bottom) {
+                    continue;
+                }
+                putQuad(vertices, spriteCount, (x - left) * scale, (y - top) * scale, size);
+                putQuad(texCoords, spriteCount, frame.getTeamNumber(i) * spriteSize, 0, spriteSize);
+                spriteCount++;
+            }
+        }
+    }
+
+    /**
+     * Writes the corners of a square as top-left, top-right, bottom-left, bottom-right.
+     */
+    private static void putQuad(float[] target, int sprite, float left, float top, float size) {
+        int offset = sprite * VERTICES_PER_SPRITE * 2;
+        target[offset] = left;
+        target[offset + 1] = top;
+        target[offset + 2] = left + size;
+        target[offset + 3] = top;
+        target[offset + 4] = left;
+        target[offset + 5] = top + size;
+        target[offset + 6] = left + size;
+        target[offset + 7] = top + size;
+    }
+
+    public int getSpriteSize() {
+        return spriteSize;
+    }
+
+    /**
+     * @return Number of sprites in the batch since the last {@link #build}.
+     */
+    public int getSpriteCount() {
+        return spriteCount;
+    }
+
+    /**
+     * @return Screen coordinates, 2 floats per vertex, 4 vertices per sprite.
+     */
+    public float[] getVertices() {
+        return vertices;
+    }
+
+    /**
+     * @return Atlas coordinates in pixels, laid out like {@link #getVertices()}.
+     */
+    public float[] getTexCoords() {
+        return texCoords;
+    }
+
+    /**
+     * @return Triangle indices for up to {@link #MAX_SPRITES_PER_DRAW} sprites, relative to the first vertex of a draw call.
+     */
+    public short[] getIndices() {
+        return indices;
+    }
+}
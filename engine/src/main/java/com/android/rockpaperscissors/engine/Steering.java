@@ -0,0 +1,65 @@
+package com.android.rockpaperscissors.engine;
+
+/**
+ * Predator-prey steering kernel of the read phase.
+ * An agent moves towards its closest prey at full speed, then away from its closest hunter at a
+ * little less than full speed if the hunter is close. Everything is computed in float on squared
+ * distances, and a direction is only normalized when its force is applied, with a single square
+ * root each. There are no calls besides the square root, so the JIT can keep the loop over the
+ * agents in registers.
+ */
+final class Steering {
+
+    static final int NONE = -1;
+    // agents only run from hunters closer than this
+    static final float RUN_DISTANCE = 500;
+    static final float RUN_DISTANCE_SQUARED = RUN_DISTANCE * RUN_DISTANCE;
+    // running is a bit slower than hunting, so hunters catch up
+    static final float RUN_SPEED = 0.95f;
+
+    private Steering() {}
+
+    /**
+     * Steers a single agent. The targets are aimed at by their center.
+     * @param x         X coordinates, the agent's entry is updated.
+     * @param y         Y coordinates, the agent's entry is updated.
+     * @param targetX   X coordinates of the targets at the start of the step.
+     * @param targetY   Y coordinates of the targets at the start of the step.
+     * @param i         index of the agent.
+     * @param prey      index of the closest prey, or {@link #NONE}.
+     * @param hunter    index of the closest hunter, or {@link #NONE}.
+     * @param halfSize  half the edge length of an agent.
+     * @param step      distance moved at full speed in this step.
+     */
+    static void predatorPrey(float[] x, float[] y, float[] targetX, float[] targetY,
+                             int i, int prey, int hunter, float halfSize, float step) {
+        float ownX = x[i];
+        float ownY = y[i];
+        if (prey != NONE) {
+            float dX = targetX[prey] + halfSize - ownX;
+            float dY = targetY[prey] + halfSize - ownY;
+            float factor = step * inverseLength(dX * dX + dY * dY);
+            ownX += dX * factor;
+            ownY += dY * factor;
+        }
+        if (hunter != NONE) {
+            float dX = targetX[hunter] + halfSize - ownX;
+            float dY = targetY[hunter] + halfSize - ownY;
+            float squared = dX * dX + dY * dY;
+            if (squared <= RUN_DISTANCE_SQUARED) {
+                float factor = step * RUN_SPEED * inverseLength(squared);
+                ownX -= dX * factor;
+                ownY -= dY * factor;
+            }
+        }
+        x[i] = ownX;
+        y[i] = ownY;
+    }
+
+    /**
+     * @return 1 / sqrt(squared), or 0 for a target exactly on the agent, which has no direction.
+     */
+    static float inverseLength(float squared) {
+        return squared > 0 ? 1f / (float) Math.sqrt(squared) : 0;
+    }
+}
@@ -0,0 +1,63 @@
+package com.android.rockpaperscissors.engine;
+
+/**
+ * The teams of the simulation.
+ * They are ordered so that every team is hunted by the next one: paper eats rock,
+ * scissors eat paper and rock eats scissors.
+ */
+public enum Team {
+    ROCK("Rock"),
+    PAPER("Paper"),
+    SCISSORS("Scissors");
+
+    private static final Team[] TEAMS = values();
+
+    private final String displayName;
+
+    Team(String displayName) {
+        this.displayName = displayName;
+    }
+
+    /**
+     * @return Name of the team as shown to the user.
+     */
+    public String getDisplayName() {
+        return displayName;
+    }
+
+    /**
+     * @return The team that eats this team.
+     */
+    public Team hunter() {
+        return TEAMS[(ordinal() + 1) % TEAMS.length];
+    }
+
+    /**
+     * @return The team that this team eats.
+     */
+    public Team prey() {
+        return TEAMS[(ordinal() + TEAMS.length - 1) % TEAMS.length];
+    }
+
+    /**
+     * Gets a team by its ordinal without allocating a copy of {@link #values()}.
+     * @param ordinal   ordinal of the team.
+     * @return          The team.
+     * @throws IllegalArgumentException if the number is of a team past the classic ones, as a world with
+     *                  another {@link Dominance} has. Such teams are only read by number.
+     */
+    public static Team of(int ordinal) {
+        if (ordinal >= TEAMS.length) {
+            throw new IllegalArgumentException("team " + ordinal + " is not one of the " + TEAMS.length
+                    + " classic teams, read it by its number");
+        }
+        return TEAMS[ordinal];
+    }
+
+    /**
+     * @return Number of teams.
+     */
+    public static int count() {
+        return TEAMS.length;
+    }
+}
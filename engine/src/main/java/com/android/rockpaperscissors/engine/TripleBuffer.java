@@ -0,0 +1,60 @@
+package com.android.rockpaperscissors.engine;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free triple buffer between one producer thread and one consumer thread.
+ * The producer always has a buffer to write into and the consumer always has a complete buffer
+ * to read, so neither thread ever waits for the other. The buffers are swapped through a single
+ * atomic index, and the consumer only ever sees the latest buffer the producer published.
+ * @param <T> type of the buffers, they are reused and never reallocated.
+ */
+public class TripleBuffer<T> {
+
+    private static final int INDEX_MASK = 0b011;
+    private static final int FRESH = 0b100;
+
+    private final Object[] buffers;
+    // index of the buffer between producer and consumer, with FRESH set when it was published but not read yet
+    private final AtomicInteger shared = new AtomicInteger(1);
+    private int writeIndex = 0;
+    private int readIndex = 2;
+
+    /**
+     * Create a triple buffer.
+     * @param initialWrite  buffer the producer writes first.
+     * @param shared        buffer passed between the threads.
+     * @param initialRead   buffer the consumer sees before anything is published.
+     */
+    public TripleBuffer(T initialWrite, T shared, T initialRead) {
+        buffers = new Object[]{initialWrite, shared, initialRead};
+    }
+
+    /**
+     * Producer side: the buffer to fill for the next publish.
+     * @return Buffer owned by the producer until {@link #publish()}.
+     */
+    @SuppressWarnings("unchecked")
+    public T getWriteBuffer() {
+        return (T) buffers[writeIndex];
+    }
+
+    /**
+     * Producer side: hands the filled write buffer to the consumer and takes a free one.
+     */
+    public void publish() {
+        writeIndex = shared.getAndSet(writeIndex | FRESH) & INDEX_MASK;
+    }
+
+    /**
+     * Consumer side: takes the latest published buffer if there is a new one.
+     * @return The latest complete buffer, owned by the consumer until the next call.
+     */
+    @SuppressWarnings("unchecked")
+    public T acquireLatest() {
+        if ((shared.get() & FRESH) != 0) {
+            readIndex = shared.getAndSet(readIndex) & INDEX_MASK;
+        }
+        return (T) buffers[readIndex];
+    }
+}
@@ -0,0 +1,139 @@
+package com.android.rockpaperscissors.engine;
+
+/**
+ * Visible part of a world that can be larger than the screen.
+ * The viewport maps world coordinates to screen pixels with a pan offset and a zoom scale.
+ * It can not zoom out further than the whole world fitting on the screen, and it can not pan
+ * past the edges of the world unless the world is smaller than the screen.
+ * <p>
+ * The UI thread pans and zooms while the render thread draws, so every method is synchronized
+ * and the render thread takes a copy once per frame with {@link #set(Viewport)}.
+ */
+public class Viewport {
+
+    private final float worldWidth, worldHeight;
+    private final float screenWidth, screenHeight;
+    private final float maxScale;
+    private float left, top;
+    private float scale = 1;
+
+    /**
+     * Create a viewport at 1:1 scale, centered on the world.
+     * @param worldWidth    width of the world.
+     * @param worldHeight   height of the world.
+     * @param screenWidth   width of the drawing area in pixels.
+     * @param screenHeight  height of the drawing area in pixels.
+     * @param maxScale      largest zoom, in screen pixels per world unit.
+     */
+    public Viewport(float worldWidth, float worldHeight, float screenWidth, float screenHeight, float maxScale) {
+        this.worldWidth = worldWidth;
+        this.worldHeight = worldHeight;
+        this.screenWidth = screenWidth;
+        this.screenHeight = screenHeight;
+        this.maxScale = Math.max(maxScale, getMinScale());
+        scale = Math.max(1, getMinScale());
+        left = (worldWidth - screenWidth / scale) / 2;
+        top = (worldHeight - screenHeight / scale) / 2;
+        clamp();
+    }
+
+    /**
+     * Copies the pan and zoom of another viewport over the same world and screen.
+     * @param other viewport to copy.
+     */
+    public void set(Viewport other) {
+        float otherLeft, otherTop, otherScale;
+        synchronized (other) {
+            otherLeft = other.left;
+            otherTop = other.top;
+            otherScale = other.scale;
+        }
+        synchronized (this) {
+            left = otherLeft;
+            top = otherTop;
+            scale = otherScale;
+        }
+    }
+
+    /**
+     * Moves the view by a distance on the screen, for example a drag.
+     * @param dx    horizontal distance in screen pixels, positive moves the content to the right.
+     * @param dy    vertical distance in screen pixels, positive moves the content down.
+     */
+    public synchronized void pan(float dx, float dy) {
+        left -= dx / scale;
+        top -= dy / scale;
+        clamp();
+    }
+
+    /**
+     * Zooms around a point of the screen, which stays over the same point of the world.
+     * @param factor    zoom factor, above 1 zooms in.
+     * @param focusX    X of the point on the screen.
+     * @param focusY    Y of the point on the screen.
+     */
+    public synchronized void zoom(float factor, float focusX, float focusY) {
+        float worldX = left + focusX / scale;
+        float worldY = top + focusY / scale;
+        scale = Math.max(getMinScale(), Math.min(maxScale, scale * factor));
+        left = worldX - focusX / scale;
+        top = worldY - focusY / scale;
+        clamp();
+    }
+
+    /**
+     * Keeps the view inside the world, or centers the world when it is smaller than the view.
+     */
+    private void clamp() {
+        float visibleWidth = screenWidth / scale;
+        float visibleHeight = screenHeight / scale;
+        left = visibleWidth >= worldWidth
+                ? (worldWidth - visibleWidth) / 2
+                : Math.max(0, Math.min(worldWidth - visibleWidth, left));
+        top = visibleHeight >= worldHeight
+                ? (worldHeight - visibleHeight) / 2
+                : Math.max(0, Math.min(worldHeight - visibleHeight, top));
+    }
+
+    /**
+     * @return Zoom at which the whole world fits on the screen.
+     */
+    private float getMinScale() {
+        return Math.min(screenWidth / worldWidth, screenHeight / worldHeight);
+    }
+
+    /**
+     * @return World X at the left edge of the screen.
+     */
+    public synchronized float getLeft() {
+        return left;
+    }
+
+    /**
+     * @return World Y at the top edge of the screen.
+     */
+    public synchronized float getTop() {
+        return top;
+    }
+
+    /**
+     * @return World X at the right edge of the screen.
+     */
+    public synchronized float getRight() {
+        return left + screenWidth / scale;
+    }
+
+    /**
+     * @return World Y at the bottom edge of the screen.
+     */
+    public synchronized float getBottom() {
+        return top + screenHeight / scale;
+    }
+
+    /**
+     * @return Screen pixels per world unit.
+     */
+    public synchronized float getScale() {
+        return scale;
+    }
+}
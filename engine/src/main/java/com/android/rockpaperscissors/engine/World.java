@@ -0,0 +1,1032 @@
+package com.android.rockpaperscissors.engine;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Headless rock-paper-scissors simulation.
+ * Holds every agent and advances them with {@link #step(float)}. It has no Android dependencies,
+ * the bounds of the arena are passed in, so it can run in JVM tests and benchmarks.
+ * <p>
+ * Agents are stored as a structure of arrays: an agent is an index into the primitive
+ * {@code x}, {@code y} and {@code team} arrays, and every team keeps a dense list of its members.
+ * An agent keeps its index for the whole match, even when it is eaten.
+ * <p>
+ * Teams are numbered from 0, and a {@link Dominance} matrix tells which team eats which. The classic
+ * game is {@link Dominance#CLASSIC}, where team numbers are {@link Team} ordinals. The methods that
+ * take or return a {@link Team} name teams by those ordinals and are meant for the classic game,
+ * the methods that take team numbers work with any number of teams.
+ * <p>
+ * A step has a read phase and a write phase. In the read phase every agent steers using only
+ * the positions from the start of the step, so agents can be moved in any order or in parallel
+ * with the same result. The spatial indexes and collisions are then updated sequentially, and
+ * the conversions found by the collision pass are committed together at the end of the step and
+ * published as one {@link ConversionBatch}. Every random number comes from an {@link Rng} stream of the agent, keyed by the tick,
+ * so a step gives the same result for a given seed whatever the number of threads.
+ */
+public class World {
+
+    /**
+     * Number of ticks per second that the movement speeds are tuned for.
+     * A step of {@code 1f / TICK_RATE} seconds moves an agent by exactly {@code speed} pixels.
+     */
+    public static final int TICK_RATE = 60;
+
+    /**
+     * Ticks between two nearest target lookups of an agent, unless its targets are invalidated sooner.
+     */
+    public static final int DEFAULT_RETARGET_INTERVAL = 8;
+
+    private static final float WALL_MARGIN = 20;
+    // a kept target is valid up to this many agent sizes further away than at its lookup
+    private static final float RETARGET_MARGIN = 1;
+    private static final int NONE = -1;
+    // no hunter and no prey, as returned by SpatialGrid.nearestOfTeams
+    private static final long NO_TARGETS = -1L;
+    // below this many agents splitting the read phase costs more than it saves
+    private static final int PARALLEL_THRESHOLD = 1024;
+    // read phase chunks per worker thread, so faster workers can steal the rest
+    private static final int CHUNKS_PER_THREAD = 4;
+    private static final ConversionListener[] NO_LISTENERS = new ConversionListener[0];
+
+    /**
+     * Receives the conversions of the world, one batch per tick that had any.
+     * Listeners are called on the thread that steps the world, after the commit phase of a step,
+     * so they must not step the world or register listeners themselves.
+     */
+    public interface ConversionListener {
+        /**
+         * Called after the eaten agents of a step joined their hunters' teams.
+         * The team counts of the world already include every conversion of the batch.
+         * @param batch conversions of the step, reused for the next step.
+         */
+        void onConversions(ConversionBatch batch);
+    }
+
+    // counters of every agent's random stream used by a step, one for each axis of the random movement
+    private static final int COUNTERS_PER_TICK = 2;
+    // stream of the spawner's generator, apart from the agents' streams
+    private static final long SPAWN_STREAM = -1;
+
+    private final int width, height, groupSize, speed, agentSize, agentCount;
+    private final Rng rng;
+    private final SpawnStrategy[] spawnStrategies;
+    private final Dominance dominance;
+    private final int teamCount;
+
+    // agent state, indexed by agent
+    private final float[] x, y;
+    // positions at the start of the last step, for render interpolation
+    private final float[] previousX, previousY;
+    private final byte[] team;
+    // targets of the last lookup, kept between steps while nearest targets are looked up every few ticks
+    private final int[] closestPrey, closestHunter;
+    // a kept target is dropped once its squared distance exceeds this limit, a little more than at the lookup
+    private final float[] preyLimit, hunterLimit;
+    // nearest target lookups of every agent, only for tests and benchmarks
+    private final int[] lookups;
+
+    // dense member list of every team, and the position of each agent in its team's list
+    private final int[][] members;
+    private final int[] memberCount;
+    private final int[] memberSlot;
+
+    // teams with members, one bit per team
+    private int aliveTeams;
+
+    // every agent, with a list per team in each cell, so one search finds the nearest hunter and prey
+    private final SpatialGrid grid;
+    private final BroadPhase broadPhase;
+    private final BroadPhase.PairListener collisionListener;
+    // collision pass snapshot, indexed by agent
+    private final float[] snapshotXs, snapshotYs;
+    private final byte[] convertTo;
+    private final ConversionBatch conversions = new ConversionBatch();
+    private float collisionScale;
+    private float stepScale;
+    private long tick;
+    // furthest tick ever reached, the retarget schedule is fixed up to it
+    private long furthestTick;
+    // retarget interval changes: from scheduleTicks[c] on, targets are looked up every scheduleIntervals[c] ticks
+    private long[] scheduleTicks = new long[4];
+    private int[] scheduleIntervals = new int[4];
+    private int scheduleSize;
+    private int nextScheduled;
+    private int retargetInterval = DEFAULT_RETARGET_INTERVAL;
+    private int winner = NONE;
+    private ConversionListener[] listeners = NO_LISTENERS;
+
+    private ForkJoinPool pool;
+    private int chunks = 1;
+
+    /**
+     * Create a world and spread every agent over the arena, none of them overlapping.
+     * @param width     width of the arena.
+     * @param height    height of the arena.
+     * @param groupSize number of agents in each team at the start.
+     * @param speed     movement speed of the agents, in pixels per tick.
+     * @param agentSize X,Y dimensions of an agent.
+     * @param seed      seed of the random spawn positions and movement, the same seed plays the same match.
+     */
+    public World(int width, int height, int groupSize, int speed, int agentSize, long seed) {
+        this(width, height, groupSize, speed, agentSize, seed, uniformSpawn());
+    }
+
+    /**
+     * Create a world and spawn every team with its own strategy, none of the agents overlapping.
+     * @param width             width of the arena.
+     * @param height            height of the arena.
+     * @param groupSize         number of agents in each team at the start.
+     * @param speed             movement speed of the agents, in pixels per tick.
+     * @param agentSize         X,Y dimensions of an agent.
+     * @param seed              seed of the random spawn positions and movement, the same seed plays the same match.
+     * @param spawnStrategies   where every team starts, indexed by Team ordinal.
+     */
+    public World(int width, int height, int groupSize, int speed, int agentSize, long seed,
+                 SpawnStrategy[] spawnStrategies) {
+        this(width, height, groupSize, speed, agentSize, seed, spawnStrategies, Dominance.CLASSIC);
+    }
+
+    /**
+     * Create a world of any number of teams, each spawned with its own strategy.
+     * @param width             width of the arena.
+     * @param height            height of the arena.
+     * @param groupSize         number of agents in each team at the start.
+     * @param speed             movement speed of the agents, in pixels per tick.
+     * @param agentSize         X,Y dimensions of an agent.
+     * @param seed              seed of the random spawn positions and movement, the same seed plays the same match.
+     * @param spawnStrategies   where every team starts, indexed by team number.
+     * @param dominance         which team eats which, it sets the number of teams.
+     */
+    public World(int width, int height, int groupSize, int speed, int agentSize, long seed,
+                 SpawnStrategy[] spawnStrategies, Dominance dominance) {
+        if (spawnStrategies.length != dominance.size()) {
+            throw new IllegalArgumentException(
+                    "a spawn strategy is needed for each of the " + dominance.size() + " teams");
+        }
+        this.width = width;
+        this.height = height;
+        this.groupSize = groupSize;
+        this.speed = speed;
+        this.agentSize = agentSize;
+        this.rng = new Rng(seed);
+        this.spawnStrategies = spawnStrategies.clone();
+        this.dominance = dominance;
+        teamCount = dominance.size();
+
+        agentCount = groupSize * teamCount;
+        x = new float[agentCount];
+        y = new float[agentCount];
+        previousX = new float[agentCount];
+        previousY = new float[agentCount];
+        team = new byte[agentCount];
+        closestPrey = new int[agentCount];
+        closestHunter = new int[agentCount];
+        Arrays.fill(closestPrey, NONE);
+        Arrays.fill(closestHunter, NONE);
+        preyLimit = new float[agentCount];
+        hunterLimit = new float[agentCount];
+        lookups = new int[agentCount];
+
+        members = new int[teamCount][agentCount];
+        memberCount = new int[teamCount];
+        memberSlot = new int[agentCount];
+
+        // cells are about the area of one agent of the whole population
+        grid = new SpatialGrid(agentCount, width, height, agentSize * 2, teamCount);
+
+        broadPhase = new BroadPhase(agentCount);
+        collisionListener = new BroadPhase.PairListener() {
+            @Override
+            public void onPair(int first, int second) {
+                collide(first, second);
+            }
+        };
+        snapshotXs = new float[agentCount];
+        snapshotYs = new float[agentCount];
+        convertTo = new byte[agentCount];
+
+        // inside the walls, so the first step does not move anyone
+        new Spawner(WALL_MARGIN, WALL_MARGIN, width - WALL_MARGIN - agentSize, height - WALL_MARGIN - agentSize,
+                agentSize, rng.split(SPAWN_STREAM)).spawn(this.spawnStrategies, groupSize, x, y);
+        for (int i = 0; i < agentCount; i++) {
+            addMember(i, i / groupSize);
+            grid.insert(i, team[i], x[i], y[i]);
+        }
+        System.arraycopy(x, 0, previousX, 0, agentCount);
+        System.arraycopy(y, 0, previousY, 0, agentCount);
+    }
+
+    /**
+     * Runs the read phase of each step on a fork-join pool.
+     * Worlds with fewer than {@code PARALLEL_THRESHOLD} agents keep stepping on the calling thread.
+     * A parallel step allocates one small task per chunk, the sequential step does not allocate.
+     * @param pool  pool to run on, or null to always step on the calling thread.
+     */
+    public void setPool(ForkJoinPool pool) {
+        this.pool = pool;
+        chunks = pool == null || agentCount < PARALLEL_THRESHOLD
+                ? 1
+                : Math.min(agentCount, pool.getParallelism() * CHUNKS_PER_THREAD);
+    }
+
+    /**
+     * Subscribes to the conversions of the world.
+     * @param listener  listener to call with the conversions of every tick.
+     */
+    public void addConversionListener(ConversionListener listener) {
+        listeners = Arrays.copyOf(listeners, listeners.length + 1);
+        listeners[listeners.length - 1] = listener;
+    }
+
+    /**
+     * Unsubscribes from the conversions of the world.
+     * @param listener  listener added with {@link #addConversionListener(ConversionListener)}.
+     */
+    public void removeConversionListener(ConversionListener listener) {
+        for (int l = 0; l < listeners.length; l++) {
+            if (listeners[l] == listener) {
+                ConversionListener[] remaining = new ConversionListener[listeners.length - 1];
+                System.arraycopy(listeners, 0, remaining, 0, l);
+                System.arraycopy(listeners, l + 1, remaining, l, remaining.length - l);
+                listeners = remaining;
+                return;
+            }
+        }
+    }
+
+    /**
+     * Sets how often the agents look up their nearest hunter and prey. The agents take turns, so about
+     * {@code 1 / interval} of them look up their targets on each tick. In between, an agent keeps its
+     * targets while they are still valid: still in the team it hunts or is hunted by, which a
+     * conversion changes, and not more than an agent size further away than at the lookup. Otherwise
+     * it looks them up at once. The default is {@link #DEFAULT_RETARGET_INTERVAL}.
+     * <p>
+     * The interval is part of the match: a change is kept in a schedule, so a world restored to an
+     * earlier tick applies it again at the same tick and plays the same way. Changes are only
+     * accepted at the furthest tick the world reached, so they can not rewrite what was played.
+     * @param interval  ticks between two lookups of an agent, 1 looks up on every tick.
+     * @return          true if the interval was changed, false while the world plays ticks it already played.
+     */
+    public boolean setRetargetInterval(int interval) {
+        if (interval <= 0) {
+            throw new IllegalArgumentException("interval must be positive");
+        }
+        if (tick < furthestTick) {
+            return false;
+        }
+        if (scheduleSize > 0 && scheduleTicks[scheduleSize - 1] == tick) {
+            scheduleSize--;
+        }
+        if (scheduleSize == scheduleTicks.length) {
+            scheduleTicks = Arrays.copyOf(scheduleTicks, scheduleSize * 2);
+            scheduleIntervals = Arrays.copyOf(scheduleIntervals, scheduleSize * 2);
+        }
+        scheduleTicks[scheduleSize] = tick;
+        scheduleIntervals[scheduleSize] = interval;
+        scheduleSize++;
+        nextScheduled = scheduleSize;
+        retargetInterval = interval;
+        return true;
+    }
+
+    /**
+     * @return Ticks between two nearest target lookups of an agent.
+     */
+    public int getRetargetInterval() {
+        return retargetInterval;
+    }
+
+    /**
+     * @return Ticks at which the retarget interval changed, in order. Owned by the world, the first
+     * {@link #getRetargetChanges()} entries are valid.
+     */
+    long[] getRetargetTicks() {
+        return scheduleTicks;
+    }
+
+    /**
+     * @return Retarget intervals set at the ticks of {@link #getRetargetTicks()}.
+     */
+    int[] getRetargetIntervals() {
+        return scheduleIntervals;
+    }
+
+    int getRetargetChanges() {
+        return scheduleSize;
+    }
+
+    /**
+     * Advances the simulation.
+     * Every agent moves first, then all collisions are resolved in a single broad phase pass.
+     * @param dt    length of the step in seconds.
+     */
+    public void step(float dt) {
+        readPhase(dt);
+        writePhase();
+    }
+
+    /**
+     * First half of a step: every agent moves, and each agent only writes its own position.
+     * Package-private so the benchmarks can time it on its own, a step is only complete once
+     * {@link #writePhase()} follows.
+     * @param dt    length of the step in seconds.
+     */
+    void readPhase(float dt) {
+        // a world played again after a restore reaches the scheduled changes again
+        while (nextScheduled < scheduleSize && scheduleTicks[nextScheduled] <= tick) {
+            retargetInterval = scheduleIntervals[nextScheduled++];
+        }
+        stepScale = dt * TICK_RATE;
+        System.arraycopy(x, 0, previousX, 0, agentCount);
+        System.arraycopy(y, 0, previousY, 0, agentCount);
+
+        if (chunks > 1) {
+            pool.invoke(new ReadPhaseTask());
+        } else {
+            moveAgents(0, agentCount);
+        }
+    }
+
+    /**
+     * Second half of a step, after {@link #readPhase(float)}: the spatial index and collisions are
+     * updated sequentially and the tick ends.
+     */
+    void writePhase() {
+        prepareCollisions();
+        findCollisions();
+        commitConversions();
+        finishStep();
+    }
+
+    /**
+     * Read phase for a range of agents.
+     * @param from  first agent index, inclusive.
+     * @param to    last agent index, exclusive.
+     */
+    void moveAgents(int from, int to) {
+        for (int i = from; i < to; i++) {
+            moveAgent(i, stepScale);
+            checkWalls(i);
+            wallAvoidance(i, stepScale);
+        }
+    }
+
+    /**
+     * Keeps a range of agents inside the arena and steers them away from the walls, as the read phase
+     * does after their other moves. Package-private so the benchmarks can time it on its own.
+     * @param from  first agent index, inclusive.
+     * @param to    last agent index, exclusive.
+     */
+    void avoidWalls(int from, int to) {
+        for (int i = from; i < to; i++) {
+            checkWalls(i);
+            wallAvoidance(i, stepScale);
+        }
+    }
+
+    /**
+     * Ends a step.
+     */
+    void finishStep() {
+        tick++;
+        furthestTick = Math.max(furthestTick, tick);
+    }
+
+    /**
+     * @return Number of steps taken since the world was created.
+     */
+    public long getTick() {
+        return tick;
+    }
+
+    /**
+     * @return Seed the world was created with.
+     */
+    public long getSeed() {
+        return rng.getSeed();
+    }
+
+    /**
+     * @return Spawn strategy of every team, indexed by Team ordinal.
+     */
+    public SpawnStrategy[] getSpawnStrategies() {
+        return spawnStrategies.clone();
+    }
+
+    /**
+     * @return A spawn strategy for every team, all {@link SpawnStrategy#UNIFORM}.
+     */
+    public static SpawnStrategy[] uniformSpawn() {
+        return uniformSpawn(Team.count());
+    }
+
+    /**
+     * @param teams number of teams.
+     * @return      A spawn strategy for every team, all {@link SpawnStrategy#UNIFORM}.
+     */
+    public static SpawnStrategy[] uniformSpawn(int teams) {
+        SpawnStrategy[] strategies = new SpawnStrategy[teams];
+        Arrays.fill(strategies, SpawnStrategy.UNIFORM);
+        return strategies;
+    }
+
+    /**
+     * @return Which team eats which.
+     */
+    public Dominance getDominance() {
+        return dominance;
+    }
+
+    /**
+     * @return Number of teams, including teams without members.
+     */
+    public int getTeamCount() {
+        return teamCount;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return Number of agents in each team at the start.
+     */
+    public int getGroupSize() {
+        return groupSize;
+    }
+
+    /**
+     * @return Movement speed of the agents, in pixels per tick.
+     */
+    public int getSpeed() {
+        return speed;
+    }
+
+    public int getAgentSize() {
+        return agentSize;
+    }
+
+    /**
+     * @return Number of agents in the world, it does not change during a match.
+     */
+    public int getAgentCount() {
+        return agentCount;
+    }
+
+    public float getX(int index) {
+        return x[index];
+    }
+
+    public float getY(int index) {
+        return y[index];
+    }
+
+    /**
+     * Interpolates the X coordinate of an agent between the last two steps.
+     * @param index Index of the agent.
+     * @param alpha 0 for the position before the last step, 1 for the current position.
+     * @return      The interpolated X coordinate.
+     */
+    public float getX(int index, float alpha) {
+        return previousX[index] + (x[index] - previousX[index]) * alpha;
+    }
+
+    /**
+     * Interpolates the Y coordinate of an agent between the last two steps.
+     * @param index Index of the agent.
+     * @param alpha 0 for the position before the last step, 1 for the current position.
+     * @return      The interpolated Y coordinate.
+     */
+    public float getY(int index, float alpha) {
+        return previousY[index] + (y[index] - previousY[index]) * alpha;
+    }
+
+    /**
+     * @param index Index of the agent.
+     * @return      Team of the agent.
+     * @throws IllegalArgumentException if the agent is in a team past the classic ones, see
+     *              {@link #getTeamNumber(int)}.
+     */
+    public Team getTeam(int index) {
+        return Team.of(team[index]);
+    }
+
+    /**
+     * @param index Index of the agent.
+     * @return      Number of the agent's team.
+     */
+    public int getTeamNumber(int index) {
+        return team[index];
+    }
+
+    /**
+     * Creates a frame for this world, with a spatial grid for drawing only part of the world.
+     * @return An empty frame.
+     */
+    public RenderFrame createFrame() {
+        // about four agents per cell on average, so the grid stays smaller than the agent arrays
+        float cellSize = Math.max(agentSize * 4, (float) Math.sqrt((double) width * height / agentCount) * 2);
+        return new RenderFrame(agentCount, width, height, cellSize, teamCount);
+    }
+
+    /**
+     * Copies the current state into a frame for the render thread.
+     * @param frame         frame to fill, it must be created for this world's agent and team count.
+     * @param publishNanos  System.nanoTime() when the frame is published, used to interpolate.
+     */
+    public void writeFrame(RenderFrame frame, long publishNanos) {
+        if (frame.getTeamCount() != teamCount) {
+            throw new IllegalArgumentException("the frame has " + frame.getTeamCount() + " teams, the world "
+                    + teamCount);
+        }
+        frame.copy(x, y, previousX, previousY, team, memberCount);
+        frame.tick = tick;
+        frame.publishNanos = publishNanos;
+        frame.winner = getWinner();
+    }
+
+    /**
+     * Counts all agents in a team.
+     * @param team  Team to be counted.
+     * @return      Returns int number of agents in the team.
+     */
+    public int count(Team team) {
+        return memberCount[team.ordinal()];
+    }
+
+    /**
+     * Counts all agents in a team.
+     * @param team  number of the team.
+     * @return      Number of agents in the team.
+     */
+    public int count(int team) {
+        return memberCount[team];
+    }
+
+    /**
+     * Gets the dense member list of a team. Only the first {@link #count(Team)} entries are valid,
+     * and the order changes whenever an agent joins or leaves the team.
+     * @param team  Team of the members.
+     * @return      Agent indexes of the team's members. The array is owned by the world, do not modify it.
+     */
+    public int[] getMembers(Team team) {
+        return members[team.ordinal()];
+    }
+
+    /**
+     * Checks if a team has won. A team wins when it has all the agents.
+     * The winner is updated on every conversion, so this does not look at the agents.
+     * @return The winning team, or null if the match is still going on or the winner is not a
+     *         {@link Team}, see {@link #getWinnerNumber()}.
+     */
+    public Team getWinner() {
+        return winner == NONE || winner >= Team.count() ? null : Team.of(winner);
+    }
+
+    /**
+     * @return Number of the team that has all the agents, or -1 if the match is still going on.
+     */
+    public int getWinnerNumber() {
+        return winner;
+    }
+
+    /**
+     * Checks if the match can still change. It can not once no team with members eats another team
+     * with members, which is when a team has won, or when the teams left all ignore each other.
+     * @return true if no conversion can happen anymore.
+     */
+    public boolean isDecided() {
+        for (int t = 0; t < teamCount; t++) {
+            if ((aliveTeams & 1 << t) != 0 && (dominance.getPreyMask(t) & aliveTeams) != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes the state that the next steps depend on: the tick, positions, teams, the kept
+     * targets and retarget interval, and the broad phase order. Random numbers only depend on the
+     * seed and the tick, so there is no generator state to save.
+     * @param out   buffer with at least {@link #getStateSize()} bytes remaining.
+     */
+    void saveState(ByteBuffer out) {
+        out.putLong(tick);
+        for (int i = 0; i < agentCount; i++) {
+            out.putFloat(x[i]);
+            out.putFloat(y[i]);
+        }
+        out.put(team, 0, agentCount);
+        for (int i = 0; i < agentCount; i++) {
+            out.putInt(closestPrey[i]);
+            out.putInt(closestHunter[i]);
+            out.putFloat(preyLimit[i]);
+            out.putFloat(hunterLimit[i]);
+        }
+        out.putInt(retargetInterval);
+        broadPhase.saveOrder(out, agentCount);
+    }
+
+    /**
+     * Replaces the state with one written by {@link #saveState(ByteBuffer)} for the same settings.
+     * The previous positions are set to the current ones, so the first frame is not interpolated.
+     * A state from beyond the furthest tick, such as a snapshot loaded into a new world, continues
+     * the retarget schedule with its interval.
+     * @param in    buffer to read from.
+     */
+    void loadState(ByteBuffer in) {
+        tick = in.getLong();
+        for (int i = 0; i < agentCount; i++) {
+            x[i] = in.getFloat();
+            y[i] = in.getFloat();
+        }
+        in.get(team, 0, agentCount);
+        for (int i = 0; i < agentCount; i++) {
+            closestPrey[i] = in.getInt();
+            closestHunter[i] = in.getInt();
+            preyLimit[i] = in.getFloat();
+            hunterLimit[i] = in.getFloat();
+        }
+        int interval = in.getInt();
+        broadPhase.loadOrder(in, agentCount);
+        // changes before the restored tick are in the interval, a change at the tick is applied by the next step
+        retargetInterval = interval;
+        nextScheduled = 0;
+        while (nextScheduled < scheduleSize && scheduleTicks[nextScheduled] < tick) {
+            nextScheduled++;
+        }
+        if (tick >= furthestTick) {
+            furthestTick = tick;
+            int scheduled = scheduleSize == 0 ? DEFAULT_RETARGET_INTERVAL : scheduleIntervals[scheduleSize - 1];
+            if (nextScheduled == scheduleSize && interval != scheduled) {
+                setRetargetInterval(interval);
+            }
+        }
+        System.arraycopy(x, 0, previousX, 0, agentCount);
+        System.arraycopy(y, 0, previousY, 0, agentCount);
+
+        winner = NONE;
+        aliveTeams = 0;
+        Arrays.fill(memberCount, 0);
+        grid.clear();
+        for (int i = 0; i < agentCount; i++) {
+            addMember(i, team[i]);
+            grid.insert(i, team[i], x[i], y[i]);
+        }
+    }
+
+    /**
+     * @return Number of bytes written by {@link #saveState(ByteBuffer)}.
+     */
+    int getStateSize() {
+        return getStateSize(agentCount);
+    }
+
+    /**
+     * @param agentCount    number of agents in the world.
+     * @return              Number of bytes written by {@link #saveState(ByteBuffer)}.
+     */
+    static int getStateSize(int agentCount) {
+        // tick, x and y, team, prey and hunter with their limits, retarget interval, broad phase order
+        return 8 + agentCount * (4 + 4 + 1 + 4 + 4 + 4 + 4) + 4 + agentCount * 4;
+    }
+
+    /**
+     * Moves the agent by performing random movement, hunting, and running behaviors.
+     * The spatial indexes still hold the positions from the start of the step.
+     */
+    private void moveAgent(int i, float scale) {
+        randomMovement(i, scale);
+        int hunterMask = dominance.getHunterMask(team[i]);
+        int preyMask = dominance.getPreyMask(team[i]);
+        // agents take turns looking up their targets, and keep them in between while they are valid
+        boolean scheduled = (tick + i) % retargetInterval == 0;
+        boolean lookUpHunter = scheduled || !isValidTarget(i, closestHunter[i], hunterMask, hunterLimit[i]);
+        boolean lookUpPrey = scheduled || !isValidTarget(i, closestPrey[i], preyMask, preyLimit[i]);
+        // teams without members are not searched, the search would scan the whole grid for nothing
+        int hunterSearch = lookUpHunter ? hunterMask & aliveTeams : 0;
+        int preySearch = lookUpPrey ? preyMask & aliveTeams : 0;
+        long targets = NO_TARGETS;
+        if ((hunterSearch | preySearch) != 0) {
+            // one search finds the nearest hunter and prey of all the teams that eat or are eaten by the agent
+            targets = grid.nearestOfTeams(x[i], y[i], i, hunterSearch, preySearch);
+            lookups[i] += (hunterSearch != 0 ? 1 : 0) + (preySearch != 0 ? 1 : 0);
+        }
+        if (lookUpHunter) {
+            closestHunter[i] = SpatialGrid.first(targets);
+            hunterLimit[i] = getTargetLimit(i, closestHunter[i]);
+        }
+        if (lookUpPrey) {
+            closestPrey[i] = SpatialGrid.second(targets);
+            preyLimit[i] = getTargetLimit(i, closestPrey[i]);
+        }
+        predatorPreyBehavior(i, scale);
+    }
+
+    /**
+     * A kept target is valid while it is in one of the expected teams and within its limit. No target
+     * is valid while none of the teams has members to look up.
+     */
+    private boolean isValidTarget(int i, int target, int teamMask, float limit) {
+        if (target == NONE) {
+            return (aliveTeams & teamMask) == 0;
+        }
+        return (teamMask & 1 << team[target]) != 0 && getTargetDistanceSquared(i, target) <= limit;
+    }
+
+    /**
+     * @return Squared distance a target just looked up may grow to before it is looked up again.
+     */
+    private float getTargetLimit(int i, int target) {
+        if (target == NONE) {
+            return 0;
+        }
+        float limit = (float) Math.sqrt(getTargetDistanceSquared(i, target)) + agentSize * RETARGET_MARGIN;
+        return limit * limit;
+    }
+
+    /**
+     * Squared distance to a target at the start of the step, where the spatial indexes have it.
+     */
+    private float getTargetDistanceSquared(int i, int target) {
+        float dX = previousX[target] - x[i];
+        float dY = previousY[target] - y[i];
+        return dX * dX + dY * dY;
+    }
+
+    /**
+     * @return Number of nearest hunter and prey lookups since the world was created, two per agent and
+     * tick when every agent looks up its targets on every tick. Teams without members are not looked
+     * up, so these lookups are not counted. Not restored with the state.
+     * Package-private so tests and benchmarks can measure the lookups saved by keeping targets.
+     */
+    long getTargetLookups() {
+        long total = 0;
+        for (int i = 0; i < agentCount; i++) {
+            total += lookups[i];
+        }
+        return total;
+    }
+
+    /**
+     * Generates random movement for the agent within its speed range.
+     * The movement only depends on the seed, the agent and the tick, so it can be drawn in the read phase.
+     */
+    private void randomMovement(int i, float scale) {
+        // the first counters once were the spawn position, which now has its own stream. They are still
+        // skipped so replays and snapshots of earlier matches play on with the same movement.
+        long counter = COUNTERS_PER_TICK * (tick + 1);
+        x[i] += rng.nextSignedFloat(i, counter) * speed * scale;
+        y[i] += rng.nextSignedFloat(i, counter + 1) * speed * scale;
+    }
+
+    /**
+     * Moves the agent towards its closest prey and away from its closest hunter, aiming at the
+     * positions they had at the start of the step.
+     */
+    private void predatorPreyBehavior(int i, float scale) {
+        Steering.predatorPrey(x, y, previousX, previousY, i, closestPrey[i], closestHunter[i],
+                agentSize * 0.5f, speed * scale);
+    }
+
+    /**
+     * Prevents the agent from moving outside the arena.
+     * If the agent touches the left, right, top, or bottom wall, its position is adjusted accordingly.
+     */
+    private void checkWalls(int i) {
+        // Check and adjust for the left wall
+        if (x[i] <= WALL_MARGIN) {
+            x[i] = WALL_MARGIN;
+        }
+
+        // Check and adjust for the right wall
+        if (x[i] + agentSize >= width - WALL_MARGIN) {
+            x[i] = width - WALL_MARGIN - agentSize;
+        }
+
+        // Check and adjust for the top wall
+        if (y[i] <= WALL_MARGIN) {
+            y[i] = WALL_MARGIN;
+        }
+
+        // Check and adjust for the bottom wall
+        if (y[i] + agentSize >= height - WALL_MARGIN) {
+            y[i] = height - WALL_MARGIN - agentSize;
+        }
+    }
+
+    /**
+     * Applies wall avoidance behavior to the agent's movement so it does not stick on the arena boundaries.
+     * The method uses {@code avoidanceWeight} to control the amount of avoidance.
+     */
+    private void wallAvoidance(int i, float scale) {
+        double centerX = x[i] + (agentSize * 0.5);
+        double centerY = y[i] + (agentSize * 0.5);
+
+        // Only avoid walls in the outer quarters
+        if (!(centerX < width * 0.25 || centerX > width * 0.75 ||
+                centerY < height * 0.25 || centerY > height * 0.75)) {
+            return;
+        }
+
+        // Define the avoidance weight
+        double avoidanceWeight = 0.002;
+
+        // Initialize direction flags for avoidance in X and Y directions
+        int dirX = 1;
+        double avoidanceX = width * 0.5 - x[i] + (agentSize * 0.5);
+        int dirY = 1;
+        double avoidanceY = height * 0.5 - y[i] + (agentSize * 0.5);
+
+        // Determine avoidance direction based on agent's position
+        if (centerX >= width * 0.5) {
+            dirX = -1;
+            avoidanceX = centerX - width * 0.5;
+        }
+        if (centerY >= height * 0.5) {
+            dirY = -1;
+            avoidanceY = centerY - height * 0.5;
+        }
+
+        // Apply avoidance by adjusting agent's position
+        x[i] += dirX * avoidanceX * avoidanceWeight * scale;
+        y[i] += dirY * avoidanceY * avoidanceWeight * scale;
+    }
+
+    /**
+     * Moves every agent to its new cell of the spatial index and takes a snapshot of every agent's
+     * position for the collision pass.
+     */
+    void prepareCollisions() {
+        for (int i = 0; i < agentCount; i++) {
+            grid.move(i, x[i], y[i]);
+        }
+        System.arraycopy(x, 0, snapshotXs, 0, agentCount);
+        System.arraycopy(y, 0, snapshotYs, 0, agentCount);
+        Arrays.fill(convertTo, (byte) NONE);
+        collisionScale = stepScale;
+    }
+
+    /**
+     * Lets the broad phase report all overlapping pairs of the snapshot once. Same team pairs are
+     * separated, hunter-prey pairs are queued for conversion. Teams do not change during the sweep,
+     * so the result does not depend on the order of the pairs.
+     */
+    void findCollisions() {
+        broadPhase.findPairs(snapshotXs, snapshotYs, agentCount, agentSize, collisionListener);
+    }
+
+    /**
+     * Applies the queued conversions in one commit phase, in agent order, and publishes them to the
+     * listeners as one batch.
+     */
+    void commitConversions() {
+        conversions.clear(tick);
+        for (int i = 0; i < agentCount; i++) {
+            if (convertTo[i] != NONE) {
+                conversions.add(i, team[i], convertTo[i]);
+                convert(i, convertTo[i]);
+            }
+        }
+        if (conversions.size() > 0) {
+            for (ConversionListener listener : listeners) {
+                listener.onConversions(conversions);
+            }
+        }
+    }
+
+    /**
+     * Handles a pair of agents reported by the broad phase.
+     * Agents of the same team push each other apart when they are within {@code agentSize}.
+     * A hunter eats its prey when they are within the {@code agentSize * 0.7} hitbox, agents of
+     * teams that ignore each other pass through each other.
+     * A prey overlapping several hunters is only converted once, to the lowest numbered of their teams.
+     * Package-private so the benchmarks can time self-collisions and eating on their own.
+     */
+    void collide(int first, int second) {
+        if (team[first] == team[second]) {
+            separate(first, snapshotXs[first] - snapshotXs[second], snapshotYs[first] - snapshotYs[second]);
+            separate(second, snapshotXs[second] - snapshotXs[first], snapshotYs[second] - snapshotYs[first]);
+            return;
+        }
+
+        // Check if both distances are smaller than or equal to the hitbox size, indicating successful eating
+        double hitBox = agentSize * 0.7;
+        if (!(Math.abs(snapshotYs[first] - snapshotYs[second]) <= hitBox && Math.abs(snapshotXs[first] - snapshotXs[second]) <= hitBox)) {
+            return;
+        }
+        if (dominance.eats(team[second], team[first])) {
+            queueConversion(first, team[second]);
+        } else if (dominance.eats(team[first], team[second])) {
+            queueConversion(second, team[first]);
+        }
+    }
+
+    /**
+     * Queues an eaten agent for conversion. The lowest hunter team wins, whatever the order of the pairs.
+     */
+    private void queueConversion(int prey, byte hunterTeam) {
+        if (convertTo[prey] == NONE || hunterTeam < convertTo[prey]) {
+            convertTo[prey] = hunterTeam;
+        }
+    }
+
+    /**
+     * Self-collision resolution: moves the agent away from an overlapping agent of its own team.
+     * @param distanceX X distance from the other agent at the start of the collision pass.
+     * @param distanceY Y distance from the other agent at the start of the collision pass.
+     */
+    private void separate(int i, float distanceX, float distanceY) {
+        float push = speed * collisionScale;
+        if (distanceX > 0) {
+            x[i] += push; // Move to the right
+        } else if (distanceX < 0) {
+            x[i] -= push; // Move to the left
+        }
+
+        if (distanceY > 0) {
+            y[i] += push; // Move down
+        } else if (distanceY < 0) {
+            y[i] -= push; // Move up
+        }
+        grid.move(i, x[i], y[i]);
+    }
+
+    /**
+     * Moves an eaten agent to the team of its hunter.
+     * The agent keeps its index.
+     */
+    private void convert(int i, int newTeam) {
+        removeMember(i);
+        addMember(i, newTeam);
+        grid.setTeam(i, newTeam);
+    }
+
+    /**
+     * Appends an agent to the member list of a team.
+     */
+    private void addMember(int i, int newTeam) {
+        team[i] = (byte) newTeam;
+        memberSlot[i] = memberCount[newTeam];
+        members[newTeam][memberCount[newTeam]++] = i;
+        aliveTeams |= 1 << newTeam;
+        if (memberCount[newTeam] == agentCount) {
+            winner = newTeam;
+        }
+    }
+
+    /**
+     * Removes an agent from the member list of its team by swapping the last member into its slot.
+     */
+    private void removeMember(int i) {
+        int t = team[i];
+        int last = members[t][--memberCount[t]];
+        members[t][memberSlot[i]] = last;
+        memberSlot[last] = memberSlot[i];
+        if (memberCount[t] == 0) {
+            aliveTeams &= ~(1 << t);
+        }
+    }
+
+    /**
+     * Read phase of a range of agents.
+     */
+    @SuppressWarnings("serial")
+    private class MoveTask extends RecursiveAction {
+        private final int from, to;
+
+        MoveTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            moveAgents(from, to);
+        }
+    }
+
+    /**
+     * Splits the read phase into chunks, forks them and waits for all of them.
+     */
+    @SuppressWarnings("serial")
+    private class ReadPhaseTask extends RecursiveAction {
+        @Override
+        protected void compute() {
+            MoveTask[] tasks = new MoveTask[chunks];
+            for (int chunk = 0; chunk < chunks; chunk++) {
+                tasks[chunk] = new MoveTask(
+                        (int) ((long) agentCount * chunk / chunks),
+                        (int) ((long) agentCount * (chunk + 1) / chunks));
+            }
+            invokeAll(tasks);
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import java.lang.management.ManagementFactory;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeTrue;
+
+/**
+ * Checks that a simulation tick does not allocate once the world is warmed up.
+ * Allocations on the hot path turn into GC pauses and frame stutter on Android.
+ */
+public class AllocationTest {
+
+    private static final int TICKS = 2000;
+    // slack for the measurement itself, far below one allocation per tick
+    private static final long MAX_ALLOCATED_BYTES = 4096;
+
+    @Test
+    public void step_doesNotAllocateInSteadyState() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        assumeTrue("thread allocation counter not available", bean instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean threadBean = (com.sun.management.ThreadMXBean) bean;
+        assumeTrue("thread allocation counter not available", threadBean.isThreadAllocatedMemorySupported());
+        threadBean.setThreadAllocatedMemoryEnabled(true);
+
+        World world = new World(1080, 2016, 250, 2, 26, 11);
+        // let the JIT compile the tick, so interpreter and compiler allocations are not counted
+        for (int tick = 0; tick < 500; tick++) {
+            world.step(1f / World.TICK_RATE);
+        }
+
+        long threadId = Thread.currentThread().getId();
+        long before = threadBean.getThreadAllocatedBytes(threadId);
+        for (int tick = 0; tick < TICKS; tick++) {
+            world.step(1f / World.TICK_RATE);
+            world.getWinner();
+            world.count(Team.ROCK);
+        }
+        long allocated = threadBean.getThreadAllocatedBytes(threadId) - before;
+
+        assertTrue("allocated " + allocated + " bytes in " + TICKS + " ticks", allocated <= MAX_ALLOCATED_BYTES);
+    }
+}
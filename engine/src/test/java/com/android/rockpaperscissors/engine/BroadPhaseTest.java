@@ -0,0 +1,70 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the pairs reported by {@link BroadPhase} against an all-pairs scan.
+ */
+public class BroadPhaseTest {
+
+    private static Set<Long> bruteForcePairs(float[] xs, float[] ys, float reach) {
+        Set<Long> pairs = new HashSet<>();
+        for (int i = 0; i < xs.length; i++) {
+            for (int j = i + 1; j < xs.length; j++) {
+                if (Math.abs(xs[i] - xs[j]) <= reach && Math.abs(ys[i] - ys[j]) <= reach) {
+                    pairs.add(((long) i << 32) | j);
+                }
+            }
+        }
+        return pairs;
+    }
+
+    private static Set<Long> broadPhasePairs(BroadPhase broadPhase, float[] xs, float[] ys, float reach) {
+        final Set<Long> pairs = new HashSet<>();
+        broadPhase.findPairs(xs, ys, xs.length, reach, new BroadPhase.PairListener() {
+            @Override
+            public void onPair(int first, int second) {
+                assertTrue(first < second);
+                assertTrue("pair reported twice", pairs.add(((long) first << 32) | second));
+            }
+        });
+        return pairs;
+    }
+
+    @Test
+    public void findPairs_matchesAllPairsScanAcrossTicks() {
+        Random random = new Random(3);
+        int count = 400;
+        float reach = 30;
+        float[] xs = new float[count];
+        float[] ys = new float[count];
+        for (int i = 0; i < count; i++) {
+            xs[i] = random.nextFloat() * 1000;
+            ys[i] = random.nextFloat() * 2000;
+        }
+        BroadPhase broadPhase = new BroadPhase(count);
+        for (int tick = 0; tick < 50; tick++) {
+            assertEquals(bruteForcePairs(xs, ys, reach), broadPhasePairs(broadPhase, xs, ys, reach));
+            for (int i = 0; i < count; i++) {
+                xs[i] += random.nextFloat() * 20 - 10;
+                ys[i] += random.nextFloat() * 20 - 10;
+            }
+        }
+    }
+
+    @Test
+    public void findPairs_reportsPairsOnTheReachBoundary() {
+        float[] xs = {0, 10, 10, 25};
+        float[] ys = {0, 10, 0, 0};
+        Set<Long> pairs = broadPhasePairs(new BroadPhase(4), xs, ys, 10);
+        assertEquals(bruteForcePairs(xs, ys, 10), pairs);
+        assertTrue(pairs.contains(1L));
+        assertFalse(pairs.contains(3L));
+    }
+}
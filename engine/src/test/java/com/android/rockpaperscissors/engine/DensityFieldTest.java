@@ -0,0 +1,132 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Builds density fields from the frames of a headless world.
+ */
+public class DensityFieldTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2016;
+    private static final int SIZE = 6;
+    private static final int[] COLORS = {0xA6D0DD, 0xFFD3B0, 0xFF6969};
+
+    @Test
+    public void build_countsEveryAgentOnce() {
+        World world = new World(WIDTH, HEIGHT, 2000, 2, SIZE, 1);
+        for (int tick = 0; tick < 30; tick++) {
+            world.step(1f / World.TICK_RATE);
+        }
+        DensityField density = new DensityField(WIDTH, HEIGHT, 20, SIZE, COLORS);
+        RenderFrame frame = world.createFrame();
+        frame.setDensityField(density);
+        world.writeFrame(frame, 0);
+        frame.buildDensity();
+
+        for (int t = 0; t < Team.count(); t++) {
+            Team team = Team.of(t);
+            int total = 0;
+            for (int row = 0; row < density.getRows(); row++) {
+                for (int column = 0; column < density.getColumns(); column++) {
+                    total += density.count(team, column, row);
+                }
+            }
+            assertEquals(world.count(team), total);
+        }
+        int agent = 17;
+        int column = (int) (world.getX(agent) / 20);
+        int row = (int) (world.getY(agent) / 20);
+        assertTrue(density.count(world.getTeam(agent), column, row) > 0);
+    }
+
+    @Test
+    public void build_mixesTeamColorsByCoverage() {
+        World world = new World(WIDTH, HEIGHT, 1, 2, SIZE, 2);
+        RenderFrame frame = world.createFrame();
+        DensityField density = new DensityField(WIDTH, HEIGHT, SIZE * 4, SIZE, COLORS);
+        frame.setDensityField(density);
+        world.writeFrame(frame, 0);
+        frame.buildDensity();
+
+        int[] pixels = density.getPixels();
+        int colored = 0;
+        for (int texel = 0; texel < pixels.length; texel++) {
+            if (pixels[texel] == 0) {
+                continue;
+            }
+            colored++;
+            int column = texel % density.getColumns();
+            int row = texel / density.getColumns();
+            for (int t = 0; t < Team.count(); t++) {
+                if (density.count(Team.of(t), column, row) > 0) {
+                    // a lone agent covers a sixteenth of the texel, which is less than the minimum alpha
+                    assertEquals(COLORS[t] | 96 << 24, pixels[texel]);
+                }
+            }
+        }
+        assertTrue(colored >= 1 && colored <= 3);
+    }
+
+    @Test
+    public void build_blendsTwoTeamsInATexel() {
+        // a world of two agents in a single texel
+        DensityField density = new DensityField(10, 10, 10, 10, new int[]{0xFF0000, 0x0000FF, 0x00FF00});
+        RenderFrame frame = new RenderFrame(2);
+        frame.setDensityField(density);
+        frame.copy(new float[]{1, 2}, new float[]{1, 2}, new float[]{1, 2}, new float[]{1, 2},
+                new byte[]{(byte) Team.ROCK.ordinal(), (byte) Team.PAPER.ordinal()}, new int[]{1, 1, 0});
+        frame.buildDensity();
+        assertEquals(0xFF7F007F, density.getPixels()[0]);
+    }
+
+    @Test
+    public void getDensity_isClearedByTheNextWrite() {
+        World world = new World(WIDTH, HEIGHT, 10, 2, SIZE, 3);
+        RenderFrame frame = world.createFrame();
+        world.writeFrame(frame, 0);
+        frame.buildDensity();
+        assertNull(frame.getDensity());
+
+        frame.setDensityField(new DensityField(WIDTH, HEIGHT, 20, SIZE, COLORS));
+        assertNull(frame.getDensity());
+        frame.buildDensity();
+        assertNotNull(frame.getDensity());
+        world.writeFrame(frame, 0);
+        assertNull(frame.getDensity());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void constructor_needsAColorPerTeam() {
+        new DensityField(WIDTH, HEIGHT, 20, SIZE, new int[]{0xFF0000});
+    }
+
+    @Test
+    public void build_countsEveryTeamOfTheWorld() {
+        World world = new World(WIDTH, HEIGHT, 100, 2, SIZE, 1, World.uniformSpawn(5), Dominance.balanced(5));
+        DensityField density = new DensityField(WIDTH, HEIGHT, 40, SIZE,
+                new int[]{0xFF0000, 0x00FF00, 0x0000FF, 0xFFFF00, 0x00FFFF});
+        RenderFrame frame = world.createFrame();
+        frame.setDensityField(density);
+        world.writeFrame(frame, 0);
+        frame.buildDensity();
+        for (int t = 0; t < 5; t++) {
+            int counted = 0;
+            for (int row = 0; row < density.getRows(); row++) {
+                for (int column = 0; column < density.getColumns(); column++) {
+                    counted += density.count(t, column, row);
+                }
+            }
+            assertEquals(100, counted);
+            assertEquals(100, frame.count(t));
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setDensityField_needsAColorPerTeamOfTheFrame() {
+        new World(WIDTH, HEIGHT, 10, 2, SIZE, 3).createFrame().setDensityField(
+                new DensityField(WIDTH, HEIGHT, 20, SIZE, new int[]{0xFF0000, 0x00FF00, 0x0000FF, 0xFFFF00, 0x00FFFF}));
+    }
+}
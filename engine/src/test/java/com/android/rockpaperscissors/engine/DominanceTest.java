@@ -0,0 +1,69 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the dominance matrices and that the classic one is the cycle of {@link Team}.
+ */
+public class DominanceTest {
+
+    @Test
+    public void classic_matchesTeamCycle() {
+        assertEquals(Team.count(), Dominance.CLASSIC.size());
+        for (int t = 0; t < Team.count(); t++) {
+            Team team = Team.of(t);
+            assertEquals(1 << team.prey().ordinal(), Dominance.CLASSIC.getPreyMask(t));
+            assertEquals(1 << team.hunter().ordinal(), Dominance.CLASSIC.getHunterMask(t));
+        }
+        assertEquals(Dominance.CLASSIC, Dominance.of(new int[] {0b100, 0b001, 0b010}));
+    }
+
+    @Test
+    public void balanced_letsEveryPairMeet() {
+        Dominance dominance = Dominance.balanced(5);
+        for (int first = 0; first < 5; first++) {
+            assertEquals(2, Integer.bitCount(dominance.getPreyMask(first)));
+            assertEquals(2, Integer.bitCount(dominance.getHunterMask(first)));
+            for (int second = 0; second < 5; second++) {
+                if (first != second) {
+                    assertTrue(dominance.eats(first, second) != dominance.eats(second, first));
+                }
+            }
+        }
+        // rock, Spock, paper, lizard, scissors: Spock smashes scissors and vaporizes rock
+        assertTrue(dominance.eats(1, 4));
+        assertTrue(dominance.eats(1, 0));
+        assertTrue(dominance.eats(3, 1));
+    }
+
+    @Test
+    public void cycle_letsOppositeTeamsIgnoreEachOther() {
+        Dominance dominance = Dominance.cycle(4);
+        assertFalse(dominance.eats(0, 2));
+        assertFalse(dominance.eats(2, 0));
+        assertTrue(dominance.eats(0, 3));
+        assertTrue(dominance.eats(1, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_rejectsTeamsEatingEachOther() {
+        Dominance.of(new int[] {0b10, 0b01});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_rejectsTeamEatingItself() {
+        Dominance.of(new int[] {0b01, 0b00});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void of_rejectsMissingTeam() {
+        Dominance.of(new int[] {0b100, 0b00});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void balanced_rejectsEvenTeams() {
+        Dominance.balanced(4);
+    }
+}
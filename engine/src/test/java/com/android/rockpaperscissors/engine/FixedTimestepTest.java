@@ -0,0 +1,69 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the fixed timestep accumulator used by the game loop.
+ */
+public class FixedTimestepTest {
+
+    private static final long MILLI = 1_000_000L;
+
+    @Test
+    public void advance_keepsTheRemainderBetweenFrames() {
+        FixedTimestep timestep = new FixedTimestep(50, 5);
+        assertEquals(0, timestep.advance(15 * MILLI));
+        assertEquals(0.75f, timestep.getAlpha(), 1e-6);
+        assertEquals(1, timestep.advance(15 * MILLI));
+        assertEquals(0.5f, timestep.getAlpha(), 1e-6);
+        assertEquals(10 * MILLI, timestep.getNanosUntilNextStep());
+        assertEquals(0.02f, timestep.getStepSeconds(), 1e-6);
+    }
+
+    @Test
+    public void advance_capsCatchUpSteps() {
+        FixedTimestep timestep = new FixedTimestep(60, 5);
+        assertEquals(5, timestep.advance(1000 * MILLI));
+        assertEquals(55, timestep.getDroppedSteps());
+        assertEquals(0f, timestep.getAlpha(), 0);
+    }
+
+    /**
+     * Runs ten seconds of a match with the given frame time and returns the world.
+     */
+    private static World runForTenSeconds(long frameNanos) {
+        World world = new World(1080, 2016, 20, 2, 90, 9);
+        FixedTimestep timestep = new FixedTimestep(World.TICK_RATE, 5);
+        for (long time = 0; time < 10_000 * MILLI; time += frameNanos) {
+            int steps = timestep.advance(frameNanos);
+            for (int i = 0; i < steps; i++) {
+                world.step(timestep.getStepSeconds());
+            }
+        }
+        return world;
+    }
+
+    @Test
+    public void sameSeed_givesSameResultOnFastAndSlowDevices() {
+        World fast = runForTenSeconds(8 * MILLI);
+        World slow = runForTenSeconds(33 * MILLI);
+        int commonTicks = (int) Math.min(fast.getTick(), slow.getTick());
+        assertTrue(Math.abs(fast.getTick() - slow.getTick()) <= 1);
+
+        // bring both to the same tick and compare
+        while (fast.getTick() < slow.getTick()) {
+            fast.step(1f / World.TICK_RATE);
+        }
+        while (slow.getTick() < fast.getTick()) {
+            slow.step(1f / World.TICK_RATE);
+        }
+        assertTrue(commonTicks >= 590);
+        for (int i = 0; i < fast.getAgentCount(); i++) {
+            assertEquals(fast.getX(i), slow.getX(i), 0);
+            assertEquals(fast.getY(i), slow.getY(i), 0);
+            assertSame(fast.getTeam(i), slow.getTeam(i));
+        }
+    }
+}
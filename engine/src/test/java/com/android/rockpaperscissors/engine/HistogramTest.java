@@ -0,0 +1,84 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the precision of the log-linear buckets.
+ */
+public class HistogramTest {
+
+    @Test
+    public void percentiles_areWithinTheBucketPrecision() {
+        Histogram histogram = new Histogram();
+        for (long value = 1; value <= 100_000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(100_000, histogram.getCount());
+        assertEquals(1000, histogram.getMin());
+        assertEquals(100_000_000, histogram.getMax());
+        assertEquals(50_000_500, histogram.getMean(), 1e-3);
+        assertEquals(50_000_000, histogram.getValueAtPercentile(50), 50_000_000 * 0.016);
+        assertEquals(99_000_000, histogram.getValueAtPercentile(99), 99_000_000 * 0.016);
+        assertEquals(100_000_000, histogram.getValueAtPercentile(100));
+        assertEquals(1000, histogram.getValueAtPercentile(0), 1000 * 0.016);
+    }
+
+    @Test
+    public void smallValues_areExact() {
+        Histogram histogram = new Histogram();
+        for (int value = 0; value < 100; value++) {
+            histogram.record(value);
+        }
+        assertEquals(49, histogram.getValueAtPercentile(50));
+        assertEquals(89, histogram.getValueAtPercentile(90));
+        assertEquals(0, histogram.getMin());
+    }
+
+    @Test
+    public void buckets_coverEveryLongInOrder() {
+        long previous = -1;
+        for (int bucket = 0; bucket <= Histogram.bucketOf(Long.MAX_VALUE); bucket++) {
+            long highest = Histogram.highestValueOf(bucket);
+            assertTrue(highest > previous);
+            assertEquals(bucket, Histogram.bucketOf(highest));
+            assertEquals(bucket, Histogram.bucketOf(previous + 1));
+            previous = highest;
+        }
+        assertEquals(Long.MAX_VALUE, previous);
+    }
+
+    @Test
+    public void reset_andEmpty() {
+        Histogram histogram = new Histogram();
+        assertEquals(0, histogram.getValueAtPercentile(99));
+        assertEquals(0, histogram.getMin());
+        assertEquals(0, histogram.getMean(), 0);
+        histogram.record(-5);
+        histogram.record(Long.MAX_VALUE);
+        assertEquals(0, histogram.getMin());
+        assertEquals(Long.MAX_VALUE, histogram.getValueAtPercentile(100));
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+        assertEquals(0, histogram.getMax());
+    }
+
+    @Test
+    public void copyTo_replacesEveryValue() {
+        Histogram histogram = new Histogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value * 7);
+        }
+        Histogram copy = new Histogram();
+        copy.record(Long.MAX_VALUE);
+        histogram.copyTo(copy);
+        assertEquals(1000, copy.getCount());
+        assertEquals(7, copy.getMin());
+        assertEquals(7000, copy.getMax());
+        assertEquals(histogram.getMean(), copy.getMean(), 0);
+        assertEquals(histogram.getValueAtPercentile(99), copy.getValueAtPercentile(99));
+        histogram.reset();
+        assertEquals(1000, copy.getCount());
+    }
+}
@@ -0,0 +1,114 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+
+import static org.junit.Assert.*;
+
+/**
+ * Collects metrics from a headless match.
+ */
+public class MetricsTest {
+
+    @Test
+    public void onTick_countsTheConversionsOfTheWorld() {
+        World world = new World(1080, 2016, 30, 2, 20, 4);
+        final long[] expected = {0};
+        world.addConversionListener(new World.ConversionListener() {
+            @Override
+            public void onConversions(ConversionBatch batch) {
+                expected[0] += batch.size();
+            }
+        });
+        Metrics metrics = new Metrics(world.getTeamCount());
+        world.addConversionListener(metrics);
+        for (int tick = 0; tick < 2000; tick++) {
+            world.step(1f / World.TICK_RATE);
+            metrics.onTick(world);
+        }
+        assertTrue(expected[0] > 0);
+        assertEquals(expected[0], metrics.getConversions());
+        assertEquals(2000, metrics.getConversionsPerTick().getCount());
+        assertEquals(2000, metrics.getTick());
+        for (int t = 0; t < Team.count(); t++) {
+            assertEquals(world.count(Team.of(t)), metrics.count(Team.of(t)));
+        }
+    }
+
+    @Test
+    public void writeJson_listsEveryPhase() throws IOException {
+        Metrics metrics = new Metrics(Team.count());
+        metrics.record(Metrics.Phase.DRAW, 2_000_000);
+        metrics.record(Metrics.Phase.DRAW, 4_000_000);
+        metrics.setGc(3, 12);
+        StringWriter out = new StringWriter();
+        metrics.writeJson(out);
+        String json = out.toString();
+        for (Metrics.Phase phase : Metrics.Phase.values()) {
+            assertTrue(json.contains("\"" + phase.getKey() + "\": {\"count\": "));
+        }
+        assertTrue(json.contains("\"draw\": {\"count\": 2, \"min\": 2000000, \"mean\": 3000000.0"));
+        assertTrue(json.contains("\"gc\": {\"count\": 3, \"millis\": 12}"));
+        assertTrue(json.contains("\"agents\": {\"rock\": 0, \"paper\": 0, \"scissors\": 0}"));
+        assertTrue(json.trim().startsWith("{") && json.trim().endsWith("}"));
+    }
+
+    @Test
+    public void teamsOfTheWorld_areCounted() throws IOException {
+        World world = new World(1080, 2016, 10, 2, 20, 3, World.uniformSpawn(5), Dominance.balanced(5));
+        Metrics metrics = new Metrics(world.getTeamCount());
+        world.addConversionListener(metrics);
+        for (int tick = 0; tick < 300; tick++) {
+            world.step(1f / World.TICK_RATE);
+            metrics.onTick(world);
+        }
+        int total = 0;
+        for (int t = 0; t < 5; t++) {
+            assertEquals(world.count(t), metrics.count(t));
+            total += metrics.count(t);
+        }
+        assertEquals(world.getAgentCount(), total);
+        StringWriter out = new StringWriter();
+        metrics.writeJson(out);
+        assertTrue(out.toString().contains("\"team4\": " + world.count(4) + "}"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void onTick_rejectsAWorldOfOtherTeams() {
+        new Metrics(Team.count()).onTick(
+                new World(1080, 2016, 10, 2, 20, 3, World.uniformSpawn(5), Dominance.balanced(5)));
+    }
+
+    @Test
+    public void copyTo_takesEveryCounter() throws IOException {
+        World world = new World(1080, 2016, 30, 2, 20, 4);
+        Metrics metrics = new Metrics(world.getTeamCount());
+        world.addConversionListener(metrics);
+        for (int tick = 0; tick < 500; tick++) {
+            world.step(1f / World.TICK_RATE);
+            metrics.onTick(world);
+            metrics.record(Metrics.Phase.TICK, 1000 + tick);
+        }
+        metrics.setGc(3, 12);
+        Metrics copy = new Metrics(world.getTeamCount());
+        copy.record(Metrics.Phase.DRAW, 5);
+        metrics.copyTo(copy);
+        StringWriter expected = new StringWriter();
+        metrics.writeJson(expected);
+        StringWriter copied = new StringWriter();
+        copy.writeJson(copied);
+        assertEquals(expected.toString(), copied.toString());
+
+        metrics.record(Metrics.Phase.TICK, 1);
+        assertEquals(500, copy.get(Metrics.Phase.TICK).getCount());
+    }
+
+    @Test
+    public void appendMillis_roundsToHundredths() {
+        assertEquals("1.23", Metrics.appendMillis(new StringBuilder(), 1_234_567).toString());
+        assertEquals("0.05", Metrics.appendMillis(new StringBuilder(), 45_000).toString());
+        assertEquals("16.70", Metrics.appendMillis(new StringBuilder(), 16_699_999).toString());
+    }
+}
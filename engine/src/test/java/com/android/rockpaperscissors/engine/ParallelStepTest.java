@@ -0,0 +1,58 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the parallel read phase gives the same match whatever the number of threads.
+ */
+public class ParallelStepTest {
+
+    private static World runMatch(int threads, int ticks, final List<Long> conversions) {
+        World world = new World(2160, 4032, 1500, 2, 40, 21);
+        world.addConversionListener(new World.ConversionListener() {
+            @Override
+            public void onConversions(ConversionBatch batch) {
+                for (int c = 0; c < batch.size(); c++) {
+                    conversions.add(batch.getTick());
+                    conversions.add((long) batch.getAgent(c));
+                }
+            }
+        });
+        ForkJoinPool pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        world.setPool(pool);
+        try {
+            for (int tick = 0; tick < ticks; tick++) {
+                world.step(1f / World.TICK_RATE);
+            }
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+        return world;
+    }
+
+    @Test
+    public void step_isDeterministicForAnyThreadCount() {
+        List<Long> sequentialConversions = new ArrayList<>();
+        World sequential = runMatch(1, 300, sequentialConversions);
+        assertFalse(sequentialConversions.isEmpty());
+        for (int threads : new int[]{2, 3, 8}) {
+            List<Long> parallelConversions = new ArrayList<>();
+            World parallel = runMatch(threads, 300, parallelConversions);
+            // the same batches, in the same order
+            assertEquals(sequentialConversions, parallelConversions);
+            for (int i = 0; i < sequential.getAgentCount(); i++) {
+                assertEquals(sequential.getX(i), parallel.getX(i), 0);
+                assertEquals(sequential.getY(i), parallel.getY(i), 0);
+                assertSame(sequential.getTeam(i), parallel.getTeam(i));
+            }
+        }
+    }
+}
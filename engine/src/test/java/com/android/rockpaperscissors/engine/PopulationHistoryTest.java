@@ -0,0 +1,140 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the population history stays bounded and keeps the shape of the curves.
+ */
+public class PopulationHistoryTest {
+
+    @Test
+    public void match_isKeptInBoundedPoints() {
+        World world = new World(1080, 2016, 30, 2, 20, 4);
+        final long[] conversions = {0};
+        world.addConversionListener(new World.ConversionListener() {
+            @Override
+            public void onConversions(ConversionBatch batch) {
+                conversions[0] += batch.size();
+            }
+        });
+        PopulationHistory history = new PopulationHistory(world, 64);
+        while (world.getWinner() == null && world.getTick() < 200_000) {
+            world.step(1f / World.TICK_RATE);
+            history.onTick(world);
+        }
+        assertNotNull(world.getWinner());
+        assertTrue(world.getTick() > 64);
+
+        int[] array = history.toArray();
+        int points = PopulationHistory.getPointCount(array);
+        assertTrue(points <= 64);
+        assertTrue(points >= 32);
+        assertEquals(Team.count(), PopulationHistory.getTeamCount(array));
+        assertEquals(2 + points * (Team.count() + 2), array.length);
+        // the first and the final tick are kept
+        assertEquals(0, PopulationHistory.getTick(array, 0));
+        assertEquals(world.getTick(), PopulationHistory.getTick(array, points - 1));
+        for (int t = 0; t < Team.count(); t++) {
+            assertEquals(30, PopulationHistory.getCount(array, 0, Team.of(t)));
+            assertEquals(world.count(Team.of(t)), PopulationHistory.getCount(array, points - 1, Team.of(t)));
+        }
+        assertEquals(world.getAgentCount(), PopulationHistory.getMaxCount(array));
+
+        long total = 0;
+        for (int p = 0; p < points; p++) {
+            assertTrue(p == 0 || PopulationHistory.getTick(array, p) > PopulationHistory.getTick(array, p - 1));
+            int population = 0;
+            for (int t = 0; t < Team.count(); t++) {
+                population += PopulationHistory.getCount(array, p, Team.of(t));
+            }
+            assertEquals(world.getAgentCount(), population);
+            total += PopulationHistory.getConversions(array, p);
+        }
+        // downsampling moves the conversions of dropped points, it does not lose any
+        assertEquals(conversions[0], total);
+    }
+
+    @Test
+    public void downsampling_keepsAPeak() {
+        PopulationHistory history = new PopulationHistory(Team.count(), 16);
+        int[] counts = new int[Team.count()];
+        for (int tick = 0; tick < 1000; tick++) {
+            // a flat curve with a single spike
+            counts[0] = tick == 517 ? 500 : 100;
+            history.record(tick, counts, 1);
+        }
+        int[] array = history.toArray();
+        int points = PopulationHistory.getPointCount(array);
+        assertTrue(points <= 16);
+        boolean peak = false;
+        long total = 0;
+        for (int p = 0; p < points; p++) {
+            peak |= PopulationHistory.getCount(array, p, Team.ROCK) == 500;
+            total += PopulationHistory.getConversions(array, p);
+        }
+        assertTrue(peak);
+        assertEquals(1000, total);
+        assertEquals(999, PopulationHistory.getTick(array, points - 1));
+    }
+
+    @Test
+    public void downsampling_spreadsThePointsOverTheMatch() {
+        PopulationHistory history = new PopulationHistory(Team.count(), 32);
+        int[] counts = new int[Team.count()];
+        for (int tick = 0; tick <= 10_000; tick++) {
+            counts[1] = tick % 97;
+            history.record(tick, counts, 0);
+        }
+        int[] array = history.toArray();
+        int points = PopulationHistory.getPointCount(array);
+        // no gap is much longer than an even spread would have
+        for (int p = 1; p < points; p++) {
+            int gap = PopulationHistory.getTick(array, p) - PopulationHistory.getTick(array, p - 1);
+            assertTrue(gap + " at " + p, gap < 4 * 10_000 / points);
+        }
+    }
+
+    @Test
+    public void ticksPlayedAgain_areIgnored() {
+        World world = new World(1080, 2016, 20, 2, 20, 5);
+        PopulationHistory history = new PopulationHistory(world, PopulationHistory.DEFAULT_CAPACITY);
+        CheckpointRing checkpoints = new CheckpointRing(world, 4, 100);
+        checkpoints.record(world);
+        for (int tick = 0; tick < 500; tick++) {
+            world.step(1f / World.TICK_RATE);
+            history.onTick(world);
+            checkpoints.record(world);
+        }
+        int[] played = history.toArray();
+
+        // scrubbing back plays the same ticks again
+        checkpoints.seek(world, 250);
+        while (world.getTick() < 500) {
+            world.step(1f / World.TICK_RATE);
+            history.onTick(world);
+        }
+        assertArrayEquals(played, history.toArray());
+    }
+
+    @Test
+    public void teamsOfTheWorld_areRecorded() {
+        int agentSize = (int) Math.sqrt(1080f * 2016 / (10 * 5)) / 2;
+        World world = new World(1080, 2016, 10, 2, agentSize, 3, World.uniformSpawn(5), Dominance.balanced(5));
+        PopulationHistory history = new PopulationHistory(world, 32);
+        for (int tick = 0; tick < 300; tick++) {
+            world.step(1f / World.TICK_RATE);
+            history.onTick(world);
+        }
+        int[] array = history.toArray();
+        int points = PopulationHistory.getPointCount(array);
+        assertEquals(5, PopulationHistory.getTeamCount(array));
+        assertEquals(2 + points * (5 + 2), array.length);
+        for (int t = 0; t < 5; t++) {
+            assertEquals(10, PopulationHistory.getCount(array, 0, t));
+            assertEquals(world.count(t), PopulationHistory.getCount(array, points - 1, t));
+        }
+        assertEquals(300, PopulationHistory.getTick(array, points - 1));
+    }
+}
@@ -0,0 +1,102 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Feeds the quality governor with made up tick and draw times.
+ */
+public class QualityGovernorTest {
+
+    private static final long FRAME_NANOS = 1_000_000_000L / 60;
+
+    /**
+     * Runs frames with the given times and returns how many it took until the level changed, or -1.
+     */
+    private static int framesUntilChange(QualityGovernor governor, long tickNanos, long drawNanos, int maxFrames) {
+        for (int frame = 1; frame <= maxFrames; frame++) {
+            governor.recordTick(tickNanos);
+            governor.recordDraw(drawNanos);
+            if (governor.update()) {
+                return frame;
+            }
+        }
+        return -1;
+    }
+
+    @Test
+    public void slowDrawing_degradesOneLevelAtATime() {
+        QualityGovernor governor = new QualityGovernor(FRAME_NANOS, 60);
+        for (int level = 1; level <= QualityGovernor.MAX_LEVEL; level++) {
+            int frames = framesUntilChange(governor, 0, FRAME_NANOS * 2, 1000);
+            assertTrue(frames > 0 && frames <= 60);
+            assertEquals(level, governor.getLevel());
+        }
+        assertEquals(-1, framesUntilChange(governor, 0, FRAME_NANOS * 2, 1000));
+        assertEquals(QualityGovernor.MAX_LEVEL, governor.getLevel());
+    }
+
+    @Test
+    public void slowTicks_degradeUntilTheSimulationKeepsUp() {
+        QualityGovernor governor = new QualityGovernor(FRAME_NANOS, 60);
+        // a tick takes 1/45 of a second, too slow for 60 ticks per second
+        long tickNanos = 1_000_000_000L / 45;
+        int changes = 0;
+        while (framesUntilChange(governor, tickNanos, 0, 1000) > 0) {
+            changes++;
+        }
+        // at half the tick rate the load is 2/3, which is neither degraded nor restored
+        assertEquals(QualityGovernor.MAX_LEVEL, governor.getLevel());
+        assertEquals(QualityGovernor.MAX_LEVEL, changes);
+        assertEquals(0.5f, governor.getTickRateScale(), 0);
+        assertEquals(60 * 0.5 / 45, governor.getLoad(), 0.01);
+    }
+
+    @Test
+    public void headroom_restoresSlowerThanItDegrades() {
+        QualityGovernor governor = new QualityGovernor(FRAME_NANOS, 60);
+        governor.setLevel(3);
+        int frames = framesUntilChange(governor, 0, FRAME_NANOS / 10, 1000);
+        assertTrue(frames >= 180);
+        assertEquals(2, governor.getLevel());
+        framesUntilChange(governor, 0, FRAME_NANOS / 10, 1000);
+        framesUntilChange(governor, 0, FRAME_NANOS / 10, 1000);
+        assertEquals(0, governor.getLevel());
+        assertEquals(-1, framesUntilChange(governor, 0, FRAME_NANOS / 10, 1000));
+    }
+
+    @Test
+    public void moderateLoad_keepsTheLevel() {
+        QualityGovernor governor = new QualityGovernor(FRAME_NANOS, 60);
+        governor.setLevel(2);
+        assertEquals(-1, framesUntilChange(governor, 0, FRAME_NANOS * 7 / 10, 2000));
+        assertEquals(2, governor.getLevel());
+    }
+
+    @Test
+    public void levels_onlyEverSaveWork() {
+        QualityGovernor governor = new QualityGovernor(FRAME_NANOS, 60);
+        int retarget = 0;
+        float lod = 0;
+        float tickRate = 2;
+        for (int level = 0; level <= QualityGovernor.MAX_LEVEL; level++) {
+            governor.setLevel(level);
+            assertTrue(governor.getRetargetInterval() >= retarget);
+            assertTrue(governor.getLodScale() >= lod && governor.getLodScale() <= QualityGovernor.MAX_LOD_SCALE);
+            assertTrue(governor.getTickRateScale() <= tickRate);
+            // every level changes something
+            assertTrue(governor.getRetargetInterval() != retarget || governor.getLodScale() != lod
+                    || governor.getTickRateScale() != tickRate);
+            retarget = governor.getRetargetInterval();
+            lod = governor.getLodScale();
+            tickRate = governor.getTickRateScale();
+        }
+        assertEquals(World.DEFAULT_RETARGET_INTERVAL, new QualityGovernor(FRAME_NANOS, 60).getRetargetInterval());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setLevel_rejectsLevelsOutOfRange() {
+        new QualityGovernor(FRAME_NANOS, 60).setLevel(QualityGovernor.MAX_LEVEL + 1);
+    }
+}
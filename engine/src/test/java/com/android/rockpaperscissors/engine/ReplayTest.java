@@ -0,0 +1,186 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Records matches and plays them back from the replay.
+ */
+public class ReplayTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2016;
+
+    private static World createWorld(int groupSize, long seed) {
+        int agentSize = (int) Math.sqrt(((float) WIDTH * HEIGHT) / (groupSize * 3)) / 2;
+        return new World(WIDTH, HEIGHT, groupSize, 2, agentSize, seed);
+    }
+
+    private static byte[] record(World world, long maxTicks) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ReplayWriter writer = new ReplayWriter(world, Channels.newChannel(bytes));
+        while (world.getWinner() == null && world.getTick() < maxTicks) {
+            world.step(1f / World.TICK_RATE);
+        }
+        writer.close();
+        return bytes.toByteArray();
+    }
+
+    private static Replay read(byte[] bytes) throws IOException {
+        return Replay.read(Channels.newChannel(new ByteArrayInputStream(bytes)));
+    }
+
+    @Test
+    public void replay_holdsTheRecordedConversions() throws IOException {
+        World world = createWorld(20, 12);
+        final List<long[]> conversions = new ArrayList<>();
+        world.addConversionListener(new World.ConversionListener() {
+            @Override
+            public void onConversions(ConversionBatch batch) {
+                for (int c = 0; c < batch.size(); c++) {
+                    conversions.add(new long[]{batch.getTick(), batch.getAgent(c)});
+                }
+            }
+        });
+        Replay replay = read(record(world, Long.MAX_VALUE));
+
+        assertEquals(12, replay.getSeed());
+        assertEquals(20, replay.getGroupSize());
+        assertEquals(world.getTick(), replay.getFinalTick());
+        assertSame(world.getWinner(), replay.getWinner());
+        assertEquals(conversions.size(), replay.getConversionCount());
+        for (int c = 0; c < conversions.size(); c++) {
+            assertEquals(conversions.get(c)[0], replay.getConversionTick(c));
+            assertEquals(conversions.get(c)[1], replay.getConversionAgent(c));
+        }
+    }
+
+    @Test
+    public void count_matchesThePlayedMatch() throws IOException {
+        World world = createWorld(30, 13);
+        Replay replay = read(record(createWorld(30, 13), Long.MAX_VALUE));
+        while (world.getTick() <= replay.getFinalTick()) {
+            for (int t = 0; t < Team.count(); t++) {
+                assertEquals(world.count(Team.of(t)), replay.count(Team.of(t), world.getTick()));
+            }
+            world.step(1f / World.TICK_RATE);
+        }
+    }
+
+    @Test
+    public void seek_reproducesPositions() throws IOException {
+        World world = createWorld(20, 14);
+        Replay replay = read(record(world, 2000));
+
+        World played = replay.seek(replay.getFinalTick());
+        assertEquals(world.getTick(), played.getTick());
+        for (int i = 0; i < world.getAgentCount(); i++) {
+            assertEquals(world.getX(i), played.getX(i), 0);
+            assertEquals(world.getY(i), played.getY(i), 0);
+            assertSame(world.getTeam(i), played.getTeam(i));
+        }
+    }
+
+    @Test
+    public void createWorld_spawnsWithTheRecordedStrategies() throws IOException {
+        SpawnStrategy[] strategies = {SpawnStrategy.CORNERS, SpawnStrategy.CLUSTERED, SpawnStrategy.UNIFORM};
+        World world = new World(WIDTH, HEIGHT, 20, 2, 100, 15, strategies);
+        World fresh = new World(WIDTH, HEIGHT, 20, 2, 100, 15, strategies);
+        Replay replay = read(record(world, 10));
+
+        assertArrayEquals(strategies, replay.getSpawnStrategies());
+        World created = replay.createWorld();
+        for (int i = 0; i < fresh.getAgentCount(); i++) {
+            assertEquals(fresh.getX(i), created.getX(i), 0);
+            assertEquals(fresh.getY(i), created.getY(i), 0);
+        }
+    }
+
+    @Test
+    public void rewind_keepsTheLogOfTheMatch() throws IOException {
+        byte[] straight = record(createWorld(20, 3), 3000);
+
+        World world = createWorld(20, 3);
+        CheckpointRing ring = new CheckpointRing(world, 100, 60);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ReplayWriter writer = new ReplayWriter(world, Channels.newChannel(bytes));
+        ring.record(world);
+        for (long rewindAt : new long[]{1000, 2500, 3000}) {
+            while (world.getWinner() == null && world.getTick() < rewindAt) {
+                world.step(1f / World.TICK_RATE);
+                ring.record(world);
+            }
+            writer.rewind();
+            ring.seek(world, world.getTick() / 3);
+        }
+        writer.close();
+
+        assertArrayEquals(straight, bytes.toByteArray());
+    }
+
+    @Test
+    public void replay_storesNoPositions() throws IOException {
+        // ten minutes at most, of a match with a lot of back and forth
+        World world = createWorld(50, 6);
+        byte[] bytes = record(world, 10 * 60 * World.TICK_RATE);
+        Replay replay = read(bytes);
+
+        // settings and a spawn strategy for every team
+        int header = 37 + Team.count();
+        assertTrue(replay.getConversionCount() > 5_000);
+        // the end of the log is a record as well, followed by the empty retarget schedule
+        assertTrue(bytes.length + " bytes", bytes.length <= header + 3 * (replay.getConversionCount() + 1) + 1);
+    }
+
+    @Test
+    public void seek_appliesTheRetargetSchedule() throws IOException {
+        World world = createWorld(20, 3);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        ReplayWriter writer = new ReplayWriter(world, Channels.newChannel(bytes));
+        for (int interval : new int[]{4, 2, 1, 3}) {
+            long until = world.getTick() + 300;
+            while (world.getWinner() == null && world.getTick() < until) {
+                world.step(1f / World.TICK_RATE);
+            }
+            assertTrue(world.setRetargetInterval(interval));
+        }
+        writer.close();
+        Replay replay = read(bytes.toByteArray());
+        assertEquals(4, replay.getRetargetChanges());
+
+        World played = replay.seek(replay.getFinalTick());
+        assertEquals(3, played.getRetargetInterval());
+        World unscheduled = replay.createWorld();
+        boolean differs = false;
+        while (unscheduled.getTick() < world.getTick()) {
+            unscheduled.step(1f / World.TICK_RATE);
+        }
+        for (int i = 0; i < world.getAgentCount(); i++) {
+            assertEquals(world.getX(i), played.getX(i), 0);
+            assertEquals(world.getY(i), played.getY(i), 0);
+            differs |= world.getX(i) != unscheduled.getX(i);
+        }
+        assertTrue("the schedule changed nothing", differs);
+    }
+
+    @Test(expected = EOFException.class)
+    public void read_rejectsTruncatedReplays() throws IOException {
+        byte[] bytes = record(createWorld(20, 16), 500);
+        read(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherFiles() throws IOException {
+        read("not a replay at all".getBytes("UTF-8"));
+    }
+}
@@ -0,0 +1,57 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the ranges and independence of the random streams.
+ */
+public class RngTest {
+
+    @Test
+    public void values_dependOnlyOnSeedStreamAndCounter() {
+        Rng first = new Rng(1);
+        Rng second = new Rng(1);
+        // read in a different order
+        for (int counter = 99; counter >= 0; counter--) {
+            second.nextLong(3, counter);
+        }
+        for (int counter = 0; counter < 100; counter++) {
+            assertEquals(first.nextLong(3, counter), second.nextLong(3, counter));
+        }
+        assertNotEquals(first.nextLong(3, 0), new Rng(2).nextLong(3, 0));
+        assertNotEquals(first.nextLong(3, 0), first.nextLong(4, 0));
+        assertNotEquals(first.nextLong(3, 0), first.split(3).nextLong(3, 0));
+    }
+
+    @Test
+    public void nextInt_staysWithinBoundAndIsUniform() {
+        Rng rng = new Rng(5);
+        int[] histogram = new int[10];
+        int samples = 100_000;
+        for (int counter = 0; counter < samples; counter++) {
+            int value = rng.nextInt(counter % 7, counter, 10);
+            assertTrue(value >= 0 && value < 10);
+            histogram[value]++;
+        }
+        for (int bucket : histogram) {
+            // 5 standard deviations of a binomial(100000, 0.1)
+            assertEquals(samples / 10, bucket, 475);
+        }
+    }
+
+    @Test
+    public void nextSignedFloat_staysWithinRangeAndIsCentered() {
+        Rng rng = new Rng(6);
+        double sum = 0;
+        int samples = 100_000;
+        for (int counter = 0; counter < samples; counter++) {
+            float value = rng.nextSignedFloat(counter, 0);
+            assertTrue(value >= -1 && value < 1);
+            sum += value;
+        }
+        // the mean of uniform(-1, 1) has a standard deviation of 0.0018 over this many samples
+        assertEquals(0, sum / samples, 0.01);
+    }
+}
@@ -0,0 +1,174 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that a restored world continues the match exactly like the original.
+ */
+public class SnapshotTest {
+
+    private static World createWorld(long seed) {
+        return new World(1080, 2016, 60, 2, 70, seed);
+    }
+
+    private static void play(World world, long untilTick) {
+        while (world.getTick() < untilTick) {
+            world.step(1f / World.TICK_RATE);
+        }
+    }
+
+    private static void assertSameState(World expected, World actual) {
+        assertEquals(expected.getTick(), actual.getTick());
+        for (int i = 0; i < expected.getAgentCount(); i++) {
+            assertEquals(expected.getX(i), actual.getX(i), 0);
+            assertEquals(expected.getY(i), actual.getY(i), 0);
+            assertSame(expected.getTeam(i), actual.getTeam(i));
+        }
+        for (int t = 0; t < Team.count(); t++) {
+            assertEquals(expected.count(Team.of(t)), actual.count(Team.of(t)));
+        }
+        assertSame(expected.getWinner(), actual.getWinner());
+    }
+
+    @Test
+    public void restore_continuesTheMatchExactly() {
+        World original = createWorld(31);
+        play(original, 300);
+        Snapshot snapshot = new Snapshot(original);
+        snapshot.capture(original);
+        play(original, 1500);
+
+        // a world further ahead, and one that was never stepped
+        World ahead = createWorld(31);
+        play(ahead, 700);
+        snapshot.restore(ahead);
+        World fresh = snapshot.createWorld();
+        assertEquals(300, fresh.getTick());
+        play(ahead, 1500);
+        play(fresh, 1500);
+
+        assertSameState(original, ahead);
+        assertSameState(original, fresh);
+    }
+
+    @Test
+    public void restore_keepsTheRetargetSchedule() {
+        World original = createWorld(33);
+        CheckpointRing ring = new CheckpointRing(original, 20, 60);
+        ring.record(original);
+        play(original, 200);
+        original.setRetargetInterval(4);
+        play(original, 650);
+        original.setRetargetInterval(2);
+        play(original, 1000);
+
+        World straight = createWorld(33);
+        play(straight, 200);
+        straight.setRetargetInterval(4);
+        play(straight, 650);
+        straight.setRetargetInterval(2);
+        play(straight, 1000);
+
+        // played ticks can not be changed, playing them again applies the schedule
+        ring.seek(original, 100);
+        assertEquals(World.DEFAULT_RETARGET_INTERVAL, original.getRetargetInterval());
+        assertFalse(original.setRetargetInterval(3));
+        play(original, 1000);
+        assertEquals(2, original.getRetargetInterval());
+        assertSameState(straight, original);
+
+        // a new world continues from the interval of the snapshot
+        Snapshot snapshot = new Snapshot(original);
+        ring.seek(original, 600);
+        snapshot.capture(original);
+        World fresh = snapshot.createWorld();
+        assertEquals(4, fresh.getRetargetInterval());
+        play(fresh, 1000);
+        World second = snapshot.createWorld();
+        play(second, 650);
+        second.setRetargetInterval(2);
+        play(second, 1000);
+        assertSameState(second, straight);
+    }
+
+    @Test
+    public void snapshot_ofAnUnsteppedWorldRestores() {
+        World original = createWorld(32);
+        Snapshot snapshot = new Snapshot(original);
+        snapshot.capture(original);
+        World restored = snapshot.createWorld();
+        play(original, 200);
+        play(restored, 200);
+        assertSameState(original, restored);
+    }
+
+    @Test
+    public void writeTo_roundTripsThroughAChannel() throws IOException {
+        World original = createWorld(33);
+        play(original, 400);
+        Snapshot snapshot = new Snapshot(original);
+        snapshot.capture(original);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        snapshot.writeTo(Channels.newChannel(bytes));
+        assertEquals(snapshot.getSize(), bytes.size());
+        // a few bytes per agent and a small header
+        assertTrue(snapshot.getSize() < 64 + 30 * original.getAgentCount());
+
+        Snapshot read = Snapshot.read(Channels.newChannel(new ByteArrayInputStream(bytes.toByteArray())));
+        assertEquals(400, read.getTick());
+        World restored = read.createWorld();
+        play(original, 900);
+        play(restored, 900);
+        assertSameState(original, restored);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void restore_rejectsOtherWorlds() {
+        World world = createWorld(34);
+        Snapshot snapshot = new Snapshot(world);
+        snapshot.capture(world);
+        snapshot.restore(createWorld(35));
+    }
+
+    @Test
+    public void checkpointRing_seeksBackAndForth() {
+        World original = createWorld(36);
+        World scrubbed = createWorld(36);
+        CheckpointRing ring = new CheckpointRing(scrubbed, 8, 60);
+        ring.record(scrubbed);
+        while (scrubbed.getTick() < 1000) {
+            scrubbed.step(1f / World.TICK_RATE);
+            ring.record(scrubbed);
+        }
+        // the keyframes of ticks 540 to 960 are kept
+        assertEquals(8, ring.size());
+        assertEquals(540, ring.getOldestTick());
+        assertEquals(960, ring.getNewestTick());
+
+        for (long tick : new long[]{700, 545, 999, 540, 1200}) {
+            ring.seek(scrubbed, tick);
+            World expected = createWorld(36);
+            play(expected, tick);
+            assertSameState(expected, scrubbed);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void checkpointRing_rejectsTicksBeforeTheOldestKeyframe() {
+        World world = createWorld(37);
+        CheckpointRing ring = new CheckpointRing(world, 2, 10);
+        for (int tick = 0; tick < 100; tick++) {
+            world.step(1f / World.TICK_RATE);
+            ring.record(world);
+        }
+        ring.seek(world, 50);
+    }
+}
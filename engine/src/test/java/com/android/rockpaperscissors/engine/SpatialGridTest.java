@@ -0,0 +1,177 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the nearest-neighbour search of {@link SpatialGrid} against the linear scan used by
+ * {@code Sprite.getInfo()} before the grid was introduced.
+ */
+public class SpatialGridTest {
+
+    private static final float WIDTH = 1080;
+    private static final float HEIGHT = 2200;
+
+    /**
+     * Same search as the old Sprite.getInfo(): first closest slot wins, empty slots are skipped.
+     */
+    private static int bruteForceNearest(float[] xs, float[] ys, boolean[] present, float x, float y, int excludeId) {
+        int closest = -1;
+        double closestDistance = Double.POSITIVE_INFINITY;
+        for (int i = 0; i < xs.length; i++) {
+            if (i == excludeId || !present[i]) {
+                continue;
+            }
+            double distance = Math.sqrt(Math.pow((ys[i] - y), 2) + Math.pow((xs[i] - x), 2));
+            if (distance < closestDistance) {
+                closestDistance = distance;
+                closest = i;
+            }
+        }
+        return closest;
+    }
+
+    @Test
+    public void nearest_matchesBruteForceOnRandomLayouts() {
+        Random random = new Random(42);
+        int[] sizes = {1, 2, 15, 60, 750};
+        for (int size : sizes) {
+            for (int layout = 0; layout < 20; layout++) {
+                float cellSize = 10 + random.nextInt(200);
+                SpatialGrid grid = new SpatialGrid(size, WIDTH, HEIGHT, cellSize);
+                float[] xs = new float[size];
+                float[] ys = new float[size];
+                boolean[] present = new boolean[size];
+                for (int i = 0; i < size; i++) {
+                    present[i] = random.nextInt(3) == 0;
+                    xs[i] = random.nextFloat() * WIDTH;
+                    ys[i] = random.nextFloat() * HEIGHT;
+                    if (present[i]) {
+                        grid.insert(i, xs[i], ys[i]);
+                    }
+                }
+                for (int query = 0; query < 50; query++) {
+                    float x = random.nextFloat() * WIDTH;
+                    float y = random.nextFloat() * HEIGHT;
+                    int exclude = random.nextInt(size);
+                    assertEquals(bruteForceNearest(xs, ys, present, x, y, exclude), grid.nearest(x, y, exclude));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void nearest_matchesBruteForceAfterIncrementalUpdates() {
+        Random random = new Random(7);
+        int size = 300;
+        SpatialGrid grid = new SpatialGrid(size, WIDTH, HEIGHT, 40);
+        float[] xs = new float[size];
+        float[] ys = new float[size];
+        boolean[] present = new boolean[size];
+        for (int i = 0; i < size; i++) {
+            xs[i] = random.nextFloat() * WIDTH;
+            ys[i] = random.nextFloat() * HEIGHT;
+            present[i] = true;
+            grid.insert(i, xs[i], ys[i]);
+        }
+        for (int tick = 0; tick < 200; tick++) {
+            int id = random.nextInt(size);
+            if (present[id] && random.nextInt(10) == 0) {
+                present[id] = false;
+                grid.remove(id);
+            } else if (!present[id]) {
+                present[id] = true;
+                grid.insert(id, xs[id], ys[id]);
+            } else {
+                // positions can leave the indexed area slightly, like sprites pushed over a wall
+                xs[id] = random.nextFloat() * (WIDTH + 100) - 50;
+                ys[id] = random.nextFloat() * (HEIGHT + 100) - 50;
+                grid.move(id, xs[id], ys[id]);
+            }
+            assertEquals(present[id], grid.contains(id));
+            for (int query = 0; query < 10; query++) {
+                int self = random.nextInt(size);
+                assertEquals(bruteForceNearest(xs, ys, present, xs[self], ys[self], self),
+                        grid.nearest(xs[self], ys[self], self));
+            }
+        }
+    }
+
+    @Test
+    public void nearest_breaksTiesByLowerId() {
+        SpatialGrid grid = new SpatialGrid(4, 100, 100, 10);
+        grid.insert(3, 50, 60);
+        grid.insert(1, 50, 40);
+        grid.insert(2, 60, 50);
+        assertEquals(1, grid.nearest(50, 50, -1));
+    }
+
+    @Test
+    public void nearest_returnsMinusOneWhenEmpty() {
+        SpatialGrid grid = new SpatialGrid(4, 100, 100, 10);
+        assertEquals(-1, grid.nearest(50, 50, -1));
+        grid.insert(0, 10, 10);
+        assertEquals(-1, grid.nearest(50, 50, 0));
+        grid.clear();
+        assertFalse(grid.contains(0));
+    }
+
+    @Test
+    public void nearestOfTeams_matchesBruteForcePerMask() {
+        Random random = new Random(11);
+        int size = 400;
+        int teams = 5;
+        for (int layout = 0; layout < 10; layout++) {
+            SpatialGrid grid = new SpatialGrid(size, WIDTH, HEIGHT, 20 + random.nextInt(100), teams);
+            float[] xs = new float[size];
+            float[] ys = new float[size];
+            int[] team = new int[size];
+            for (int i = 0; i < size; i++) {
+                xs[i] = random.nextFloat() * WIDTH;
+                ys[i] = random.nextFloat() * HEIGHT;
+                team[i] = random.nextInt(teams);
+                grid.insert(i, team[i], xs[i], ys[i]);
+            }
+            // a few agents change team in place, like conversions
+            for (int change = 0; change < 50; change++) {
+                int id = random.nextInt(size);
+                team[id] = random.nextInt(teams);
+                grid.setTeam(id, team[id]);
+            }
+            for (int query = 0; query < 100; query++) {
+                int self = random.nextInt(size);
+                int firstMask = random.nextInt(1 << teams);
+                int secondMask = random.nextInt(1 << teams);
+                long pair = grid.nearestOfTeams(xs[self], ys[self], self, firstMask, secondMask);
+                assertEquals(bruteForceNearest(xs, ys, inMask(team, firstMask), xs[self], ys[self], self),
+                        SpatialGrid.first(pair));
+                assertEquals(bruteForceNearest(xs, ys, inMask(team, secondMask), xs[self], ys[self], self),
+                        SpatialGrid.second(pair));
+            }
+        }
+    }
+
+    @Test
+    public void nearestOfTeams_skipsTeamsNotAsked() {
+        SpatialGrid grid = new SpatialGrid(4, 100, 100, 10, 3);
+        grid.insert(0, 0, 50, 50);
+        grid.insert(1, 1, 52, 50);
+        grid.insert(2, 2, 90, 90);
+        long pair = grid.nearestOfTeams(50, 50, 0, 1 << 2, 0);
+        assertEquals(2, SpatialGrid.first(pair));
+        assertEquals(-1, SpatialGrid.second(pair));
+        grid.setTeam(1, 2);
+        assertEquals(1, SpatialGrid.first(grid.nearestOfTeams(50, 50, 0, 1 << 2, 0)));
+    }
+
+    private static boolean[] inMask(int[] team, int mask) {
+        boolean[] present = new boolean[team.length];
+        for (int i = 0; i < team.length; i++) {
+            present[i] = (mask & 1 << team[i]) != 0;
+        }
+        return present;
+    }
+}
@@ -0,0 +1,170 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that spawned agents never overlap and start where their strategy puts them.
+ */
+public class SpawnerTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2016;
+
+    private static int agentSize(int width, int height, int groupSize) {
+        return (int) Math.sqrt(((float) width * height) / (groupSize * 3)) / 2;
+    }
+
+    private static int spawn(int width, int height, int groupSize, SpawnStrategy[] strategies, long seed,
+                             float[] x, float[] y) {
+        int size = agentSize(width, height, groupSize);
+        return new Spawner(0, 0, width - size, height - size, size, new Rng(seed)).spawn(strategies, groupSize, x, y);
+    }
+
+    private static SpawnStrategy[] all(SpawnStrategy strategy) {
+        SpawnStrategy[] strategies = new SpawnStrategy[Team.count()];
+        Arrays.fill(strategies, strategy);
+        return strategies;
+    }
+
+    /**
+     * @return Number of pairs the broad phase would push apart or let eat each other.
+     */
+    private static int countOverlaps(float[] x, float[] y, float size) {
+        final int[] pairs = {0};
+        new BroadPhase(x.length).findPairs(x, y, x.length, size, new BroadPhase.PairListener() {
+            @Override
+            public void onPair(int first, int second) {
+                pairs[0]++;
+            }
+        });
+        return pairs[0];
+    }
+
+    @Test
+    public void spawn_placesNoAgentsOverlappingInBounds() {
+        int groupSize = 200;
+        int size = agentSize(WIDTH, HEIGHT, groupSize);
+        for (SpawnStrategy strategy : SpawnStrategy.values()) {
+            float[] x = new float[groupSize * Team.count()];
+            float[] y = new float[x.length];
+            assertEquals(strategy.name(), 0, spawn(WIDTH, HEIGHT, groupSize, all(strategy), 1, x, y));
+            assertEquals(strategy.name(), 0, countOverlaps(x, y, size));
+            for (int i = 0; i < x.length; i++) {
+                assertTrue(x[i] >= 0 && x[i] <= WIDTH - size);
+                assertTrue(y[i] >= 0 && y[i] <= HEIGHT - size);
+            }
+        }
+    }
+
+    @Test
+    public void spawn_placesAHundredThousandAgentsApart() {
+        // a large arena at the density of the phone sized one
+        int groupSize = 33_334;
+        int width = WIDTH * 10;
+        int height = HEIGHT * 10;
+        int size = agentSize(width, height, groupSize);
+        SpawnStrategy[] strategies = {SpawnStrategy.UNIFORM, SpawnStrategy.CLUSTERED, SpawnStrategy.CORNERS};
+        float[] x = new float[groupSize * Team.count()];
+        float[] y = new float[x.length];
+        assertEquals(0, spawn(width, height, groupSize, strategies, 2, x, y));
+        assertEquals(0, countOverlaps(x, y, size));
+    }
+
+    @Test
+    public void spawn_isTheSameForTheSameSeed() {
+        SpawnStrategy[] strategies = {SpawnStrategy.CLUSTERED, SpawnStrategy.UNIFORM, SpawnStrategy.UNIFORM};
+        float[][] positions = new float[3][];
+        for (int run = 0; run < positions.length; run++) {
+            positions[run] = new float[2 * 50 * Team.count()];
+            float[] y = new float[50 * Team.count()];
+            spawn(WIDTH, HEIGHT, 50, strategies, run == 2 ? 6 : 5, positions[run], y);
+            System.arraycopy(y, 0, positions[run], y.length, y.length);
+        }
+        assertArrayEquals(positions[0], positions[1], 0);
+        assertFalse(Arrays.equals(positions[0], positions[2]));
+    }
+
+    @Test
+    public void uniformTeams_spreadOverTheWholeArena() {
+        int groupSize = 100;
+        float[] x = new float[groupSize * Team.count()];
+        float[] y = new float[x.length];
+        spawn(WIDTH, HEIGHT, groupSize, all(SpawnStrategy.UNIFORM), 3, x, y);
+        for (int t = 0; t < Team.count(); t++) {
+            // every team has agents in each quarter of the arena
+            int[] quarters = new int[4];
+            for (int i = t * groupSize; i < (t + 1) * groupSize; i++) {
+                quarters[(x[i] < WIDTH / 2f ? 0 : 1) + (y[i] < HEIGHT / 2f ? 0 : 2)]++;
+            }
+            for (int quarter : quarters) {
+                assertTrue(Arrays.toString(quarters), quarter > groupSize / 8);
+            }
+        }
+    }
+
+    @Test
+    public void cornerTeams_startInTheirOwnCorner() {
+        int groupSize = 100;
+        float[] x = new float[groupSize * Team.count()];
+        float[] y = new float[x.length];
+        spawn(WIDTH, HEIGHT, groupSize, all(SpawnStrategy.CORNERS), 4, x, y);
+        // top left, top right, bottom right
+        float[][] corners = {{0, 0}, {WIDTH, 0}, {WIDTH, HEIGHT}};
+        for (int t = 0; t < Team.count(); t++) {
+            for (int i = t * groupSize; i < (t + 1) * groupSize; i++) {
+                assertTrue(Math.abs(x[i] - corners[t][0]) < WIDTH * 0.75f);
+                assertTrue(Math.abs(y[i] - corners[t][1]) < HEIGHT / 2f);
+            }
+        }
+    }
+
+    @Test
+    public void clusteredTeams_stayClose() {
+        int groupSize = 100;
+        int size = agentSize(WIDTH, HEIGHT, groupSize);
+        float[] x = new float[groupSize * Team.count()];
+        float[] y = new float[x.length];
+        spawn(WIDTH, HEIGHT, groupSize, all(SpawnStrategy.CLUSTERED), 5, x, y);
+        for (int t = 0; t < Team.count(); t++) {
+            float minX = Float.MAX_VALUE, maxX = -Float.MAX_VALUE, minY = Float.MAX_VALUE, maxY = -Float.MAX_VALUE;
+            for (int i = t * groupSize; i < (t + 1) * groupSize; i++) {
+                minX = Math.min(minX, x[i]);
+                maxX = Math.max(maxX, x[i]);
+                minY = Math.min(minY, y[i]);
+                maxY = Math.max(maxY, y[i]);
+            }
+            // a team packed apart covers a square of ten agents, widened when other clusters are in the way
+            assertTrue((maxX - minX) * (maxY - minY) < 60 * groupSize * size * size);
+        }
+    }
+
+    @Test
+    public void spawn_overlapsOnlyWhatDoesNotFit() {
+        float[] x = new float[30];
+        float[] y = new float[30];
+        int overlapping = new Spawner(0, 0, 100, 100, 40, new Rng(1)).spawn(all(SpawnStrategy.CLUSTERED), 10, x, y);
+        // at most a 3 by 3 grid of agents 40 apart fits into 140 by 140
+        assertTrue(overlapping >= 30 - 9);
+        for (int i = 0; i < x.length; i++) {
+            assertTrue(x[i] >= 0 && x[i] <= 100 && y[i] >= 0 && y[i] <= 100);
+        }
+    }
+
+    @Test
+    public void world_startsWithoutCollisions() {
+        World world = new World(WIDTH, HEIGHT, 100, 2, agentSize(WIDTH, HEIGHT, 100), 7,
+                new SpawnStrategy[]{SpawnStrategy.CORNERS, SpawnStrategy.UNIFORM, SpawnStrategy.CLUSTERED});
+        float[] x = new float[world.getAgentCount()];
+        float[] y = new float[x.length];
+        for (int i = 0; i < x.length; i++) {
+            x[i] = world.getX(i);
+            y[i] = world.getY(i);
+        }
+        assertEquals(0, countOverlaps(x, y, world.getAgentSize()));
+        assertSame(SpawnStrategy.CORNERS, world.getSpawnStrategies()[0]);
+    }
+}
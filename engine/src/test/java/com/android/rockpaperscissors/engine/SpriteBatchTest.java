@@ -0,0 +1,177 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the batched sprite geometry by rasterizing it on the CPU and comparing the image
+ * with drawing every sprite on its own.
+ */
+public class SpriteBatchTest {
+
+    private static final int WIDTH = 540;
+    private static final int HEIGHT = 1000;
+    private static final int SIZE = 16;
+    private static final int BACKGROUND = 0xFFFFFDF2;
+
+    /**
+     * Atlas with a different translucent pattern for every team.
+     */
+    private static int[] createAtlas(Random random) {
+        int[] atlas = new int[SIZE * Team.count() * SIZE];
+        for (int i = 0; i < atlas.length; i++) {
+            atlas[i] = random.nextInt();
+        }
+        return atlas;
+    }
+
+    /**
+     * The old way of drawing: one blit per agent, straight from the frame.
+     */
+    private static int[] drawPerSprite(RenderFrame frame, float alpha, int[] atlas) {
+        int atlasWidth = SIZE * Team.count();
+        int[] pixels = new int[WIDTH * HEIGHT];
+        java.util.Arrays.fill(pixels, BACKGROUND);
+        for (int i = 0; i < frame.getAgentCount(); i++) {
+            int left = Math.round(frame.getX(i, alpha));
+            int top = Math.round(frame.getY(i, alpha));
+            int u = frame.getTeam(i).ordinal() * SIZE;
+            for (int row = 0; row < SIZE; row++) {
+                for (int column = 0; column < SIZE; column++) {
+                    int x = left + column;
+                    int y = top + row;
+                    if (x < 0 || y < 0 || x >= WIDTH || y >= HEIGHT) {
+                        continue;
+                    }
+                    pixels[y * WIDTH + x] = SoftwareRenderer.blend(atlas[row * atlasWidth + u + column], pixels[y * WIDTH + x]);
+                }
+            }
+        }
+        return pixels;
+    }
+
+    @Test
+    public void softwareRenderer_matchesPerSpriteDrawing() {
+        Random random = new Random(4);
+        int[] atlas = createAtlas(random);
+        World world = new World(WIDTH, HEIGHT, 200, 2, SIZE, 4);
+        RenderFrame frame = new RenderFrame(world.getAgentCount());
+        SpriteBatch batch = new SpriteBatch(world.getAgentCount(), SIZE);
+        SoftwareRenderer renderer = new SoftwareRenderer(WIDTH, HEIGHT);
+
+        for (int tick = 0; tick < 30; tick++) {
+            world.step(1f / World.TICK_RATE);
+            world.writeFrame(frame, 0);
+            float alpha = tick / 30f;
+            batch.build(frame, alpha);
+            renderer.clear(BACKGROUND);
+            renderer.draw(batch, atlas, SIZE * Team.count());
+            assertArrayEquals(drawPerSprite(frame, alpha, atlas), renderer.getPixels());
+        }
+    }
+
+    @Test
+    public void build_writesTwoTrianglesPerSprite() {
+        World world = new World(WIDTH, HEIGHT, 5, 2, SIZE, 2);
+        RenderFrame frame = new RenderFrame(world.getAgentCount());
+        world.writeFrame(frame, 0);
+        SpriteBatch batch = new SpriteBatch(world.getAgentCount(), SIZE);
+        batch.build(frame, 1f);
+
+        assertEquals(15, batch.getSpriteCount());
+        short[] indices = batch.getIndices();
+        assertEquals(15 * SpriteBatch.INDICES_PER_SPRITE, indices.length);
+        float[] vertices = batch.getVertices();
+        float[] texCoords = batch.getTexCoords();
+        for (int sprite = 0; sprite < 15; sprite++) {
+            int offset = sprite * 8;
+            assertEquals(frame.getX(sprite, 1f), vertices[offset], 0);
+            assertEquals(frame.getY(sprite, 1f) + SIZE, vertices[offset + 7], 0);
+            assertEquals(frame.getTeam(sprite).ordinal() * SIZE, texCoords[offset], 0);
+            for (int index = 0; index < SpriteBatch.INDICES_PER_SPRITE; index++) {
+                int vertex = indices[sprite * SpriteBatch.INDICES_PER_SPRITE + index];
+                assertTrue(vertex >= sprite * 4 && vertex < sprite * 4 + 4);
+            }
+        }
+    }
+
+    @Test
+    public void buildInViewport_keepsExactlyTheVisibleAgents() {
+        // a world of four by four screens
+        World world = new World(WIDTH * 4, HEIGHT * 4, 2000, 2, SIZE, 5);
+        RenderFrame frame = world.createFrame();
+        SpriteBatch batch = new SpriteBatch(world.getAgentCount(), SIZE);
+        Viewport viewport = new Viewport(WIDTH * 4, HEIGHT * 4, WIDTH, HEIGHT, 4);
+        viewport.zoom(1.5f, 100, 200);
+        viewport.pan(-700, 300);
+
+        for (int tick = 0; tick < 20; tick++) {
+            world.step(1f / World.TICK_RATE);
+            world.writeFrame(frame, 0);
+            float alpha = tick / 20f;
+            batch.build(frame, alpha, viewport);
+
+            float scale = viewport.getScale();
+            float[] vertices = batch.getVertices();
+            int visible = 0;
+            for (int i = 0; i < world.getAgentCount(); i++) {
+                float x = frame.getX(i, alpha);
+                float y = frame.getY(i, alpha);
+                if (x + SIZE < viewport.getLeft() || x > viewport.getRight()
+                        || y + SIZE < viewport.getTop() || y > viewport.getBottom()) {
+                    continue;
+                }
+                visible++;
+                boolean found = false;
+                for (int sprite = 0; sprite < batch.getSpriteCount() && !found; sprite++) {
+                    found = vertices[sprite * 8] == (x - viewport.getLeft()) * scale
+                            && vertices[sprite * 8 + 1] == (y - viewport.getTop()) * scale;
+                }
+                assertTrue("agent " + i + " is visible but not drawn", found);
+            }
+            assertEquals(visible, batch.getSpriteCount());
+            assertTrue(visible < world.getAgentCount() / 4);
+            assertEquals(SIZE * scale, vertices[2] - vertices[0], 1e-3f);
+        }
+    }
+
+    @Test
+    public void softwareRenderer_scalesZoomedSprites() {
+        World world = new World(WIDTH, HEIGHT, 1, 2, SIZE, 6);
+        RenderFrame frame = world.createFrame();
+        world.writeFrame(frame, 0);
+        SpriteBatch batch = new SpriteBatch(world.getAgentCount(), SIZE);
+        Viewport viewport = new Viewport(WIDTH, HEIGHT, WIDTH, HEIGHT, 4);
+        viewport.zoom(2, frame.getX(0, 1), frame.getY(0, 1));
+        batch.build(frame, 1, viewport);
+
+        int[] atlas = new int[SIZE * Team.count() * SIZE];
+        java.util.Arrays.fill(atlas, 0xFF102030);
+        SoftwareRenderer renderer = new SoftwareRenderer(WIDTH, HEIGHT);
+        renderer.clear(BACKGROUND);
+        renderer.draw(batch, atlas, SIZE * Team.count());
+        int covered = 0;
+        for (int pixel : renderer.getPixels()) {
+            if (pixel == 0xFF102030) {
+                covered++;
+            }
+        }
+        // the sprite of the agent under the zoom focus is drawn twice as large
+        assertTrue(covered >= SIZE * 2 * SIZE * 2);
+    }
+
+    @Test
+    public void indices_fitInShorts() {
+        SpriteBatch batch = new SpriteBatch(100_000, 2);
+        short[] indices = batch.getIndices();
+        assertEquals(SpriteBatch.MAX_SPRITES_PER_DRAW * SpriteBatch.INDICES_PER_SPRITE, indices.length);
+        int largest = 0;
+        for (short index : indices) {
+            largest = Math.max(largest, index & 0xFFFF);
+        }
+        assertEquals(SpriteBatch.MAX_SPRITES_PER_DRAW * 4 - 1, largest);
+    }
+}
@@ -0,0 +1,91 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Compares the steering kernel with the double precision hunt and run it replaced.
+ */
+public class SteeringTest {
+
+    private static final float HALF_SIZE = 7;
+    private static final float STEP = 3.5f;
+
+    /**
+     * The hunt and run steering before the kernel, with its Math.pow distances.
+     */
+    private static void reference(float[] x, float[] y, float[] targetX, float[] targetY, int i, int prey, int hunter) {
+        if (prey != Steering.NONE) {
+            double dX = (targetX[prey] + HALF_SIZE - x[i]);
+            double dY = (targetY[prey] + HALF_SIZE - y[i]);
+            double distance = Math.sqrt(Math.pow(dY, 2) + Math.pow(dX, 2));
+            x[i] += (dX / distance) * STEP;
+            y[i] += (dY / distance) * STEP;
+        }
+        if (hunter == Steering.NONE) {
+            return;
+        }
+        double dX = (targetX[hunter] + HALF_SIZE - x[i]);
+        double dY = (targetY[hunter] + HALF_SIZE - y[i]);
+        double distance = Math.sqrt(Math.pow(dY, 2) + Math.pow(dX, 2));
+        if (distance > 500) {
+            return;
+        }
+        x[i] -= (dX / distance) * STEP * 0.95;
+        y[i] -= (dY / distance) * STEP * 0.95;
+    }
+
+    @Test
+    public void predatorPrey_matchesTheReference() {
+        int count = 10_000;
+        Rng rng = new Rng(11);
+        float[] targetX = new float[count];
+        float[] targetY = new float[count];
+        for (int i = 0; i < count; i++) {
+            targetX[i] = 1080 * (rng.nextSignedFloat(i, 0) + 1) / 2;
+            targetY[i] = 2016 * (rng.nextSignedFloat(i, 1) + 1) / 2;
+        }
+        float[] x = targetX.clone();
+        float[] y = targetY.clone();
+        float[] expectedX = targetX.clone();
+        float[] expectedY = targetY.clone();
+        for (int i = 0; i < count; i++) {
+            // a few agents have no prey or no hunter left
+            int prey = i % 50 == 0 ? Steering.NONE : rng.nextInt(i, 2, count);
+            int hunter = i % 70 == 0 ? Steering.NONE : rng.nextInt(i, 3, count);
+            if (prey == i || hunter == i) {
+                continue;
+            }
+            Steering.predatorPrey(x, y, targetX, targetY, i, prey, hunter, HALF_SIZE, STEP);
+            reference(expectedX, expectedY, targetX, targetY, i, prey, hunter);
+            assertEquals(expectedX[i], x[i], 1e-3f);
+            assertEquals(expectedY[i], y[i], 1e-3f);
+        }
+    }
+
+    @Test
+    public void predatorPrey_onlyRunsFromCloseHunters() {
+        float[] x = {0, 0, 0};
+        float[] y = {0, 0, 0};
+        float[] targetX = {0, Steering.RUN_DISTANCE - HALF_SIZE - 1, Steering.RUN_DISTANCE - HALF_SIZE + 1};
+        float[] targetY = {0, -HALF_SIZE, -HALF_SIZE};
+
+        Steering.predatorPrey(x, y, targetX, targetY, 0, Steering.NONE, 1, HALF_SIZE, STEP);
+        assertEquals(-STEP * Steering.RUN_SPEED, x[0], 1e-5f);
+        assertEquals(0, y[0], 1e-5f);
+
+        x[0] = 0;
+        Steering.predatorPrey(x, y, targetX, targetY, 0, Steering.NONE, 2, HALF_SIZE, STEP);
+        assertEquals(0, x[0], 0);
+    }
+
+    @Test
+    public void predatorPrey_staysPutOnTopOfItsTarget() {
+        float[] x = {HALF_SIZE, 0};
+        float[] y = {HALF_SIZE, 0};
+        Steering.predatorPrey(x, y, x.clone(), y.clone(), 0, 1, Steering.NONE, HALF_SIZE, STEP);
+        assertEquals(HALF_SIZE, x[0], 0);
+        assertEquals(HALF_SIZE, y[0], 0);
+    }
+}
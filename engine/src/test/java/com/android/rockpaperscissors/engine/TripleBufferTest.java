@@ -0,0 +1,66 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks that the consumer of a {@link TripleBuffer} only sees complete buffers, in publish order.
+ */
+public class TripleBufferTest {
+
+    @Test
+    public void acquireLatest_returnsLastPublished() {
+        TripleBuffer<int[]> buffer = new TripleBuffer<>(new int[1], new int[1], new int[1]);
+        int[] initial = buffer.acquireLatest();
+        assertSame(initial, buffer.acquireLatest());
+
+        buffer.getWriteBuffer()[0] = 1;
+        buffer.publish();
+        buffer.getWriteBuffer()[0] = 2;
+        buffer.publish();
+        assertEquals(2, buffer.acquireLatest()[0]);
+        // nothing new was published
+        assertEquals(2, buffer.acquireLatest()[0]);
+    }
+
+    @Test
+    public void consumer_neverSeesTornOrOlderBuffers() throws InterruptedException {
+        final int size = 256;
+        final int publishes = 200_000;
+        final TripleBuffer<long[]> buffer = new TripleBuffer<>(new long[size], new long[size], new long[size]);
+        final AtomicBoolean done = new AtomicBoolean();
+
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                for (long sequence = 1; sequence <= publishes; sequence++) {
+                    long[] frame = buffer.getWriteBuffer();
+                    for (int i = 0; i < size; i++) {
+                        frame[i] = sequence;
+                    }
+                    buffer.publish();
+                }
+                done.set(true);
+            }
+        });
+        producer.start();
+
+        long last = 0;
+        boolean finished = false;
+        while (!finished) {
+            finished = done.get();
+            long[] frame = buffer.acquireLatest();
+            long sequence = frame[0];
+            for (int i = 1; i < size; i++) {
+                assertEquals("torn frame", sequence, frame[i]);
+            }
+            assertTrue(sequence >= last);
+            last = sequence;
+        }
+        producer.join();
+        assertEquals(publishes, buffer.acquireLatest()[0]);
+    }
+}
@@ -0,0 +1,66 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Checks the pan and zoom limits of the viewport.
+ */
+public class ViewportTest {
+
+    @Test
+    public void zoom_keepsTheFocusInPlace() {
+        Viewport viewport = new Viewport(10_000, 20_000, 1000, 2000, 4);
+        float worldX = viewport.getLeft() + 300 / viewport.getScale();
+        float worldY = viewport.getTop() + 500 / viewport.getScale();
+        viewport.zoom(2, 300, 500);
+        assertEquals(2, viewport.getScale(), 0);
+        assertEquals(worldX, viewport.getLeft() + 300 / viewport.getScale(), 1e-2f);
+        assertEquals(worldY, viewport.getTop() + 500 / viewport.getScale(), 1e-2f);
+    }
+
+    @Test
+    public void zoom_stopsAtTheWholeWorldAndTheMaximum() {
+        Viewport viewport = new Viewport(10_000, 20_000, 1000, 2000, 4);
+        viewport.zoom(0.001f, 0, 0);
+        assertEquals(0.1f, viewport.getScale(), 1e-6f);
+        assertEquals(0, viewport.getLeft(), 1e-2f);
+        assertEquals(10_000, viewport.getRight(), 1e-1f);
+        viewport.zoom(1000, 0, 0);
+        assertEquals(4, viewport.getScale(), 0);
+    }
+
+    @Test
+    public void pan_staysInsideTheWorld() {
+        Viewport viewport = new Viewport(10_000, 20_000, 1000, 2000, 4);
+        viewport.pan(100_000, 100_000);
+        assertEquals(0, viewport.getLeft(), 0);
+        assertEquals(0, viewport.getTop(), 0);
+        viewport.pan(-100_000, -100_000);
+        assertEquals(10_000, viewport.getRight(), 0);
+        assertEquals(20_000, viewport.getBottom(), 0);
+    }
+
+    @Test
+    public void worldAsLargeAsTheScreen_isShownWhole() {
+        Viewport viewport = new Viewport(1000, 2000, 1000, 2000, 4);
+        assertEquals(1, viewport.getScale(), 0);
+        assertEquals(0, viewport.getLeft(), 0);
+        viewport.pan(500, 500);
+        assertEquals(0, viewport.getLeft(), 0);
+        assertEquals(0, viewport.getTop(), 0);
+    }
+
+    @Test
+    public void set_copiesPanAndZoom() {
+        Viewport source = new Viewport(10_000, 20_000, 1000, 2000, 4);
+        source.zoom(3, 10, 10);
+        source.pan(-250, 40);
+        Viewport copy = new Viewport(10_000, 20_000, 1000, 2000, 4);
+        copy.set(source);
+        assertEquals(source.getLeft(), copy.getLeft(), 0);
+        assertEquals(source.getTop(), copy.getTop(), 0);
+        assertEquals(source.getScale(), copy.getScale(), 0);
+    }
+}
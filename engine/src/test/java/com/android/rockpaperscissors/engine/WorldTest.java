@@ -0,0 +1,353 @@
+package com.android.rockpaperscissors.engine;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs the headless simulation without any Android classes.
+ */
+public class WorldTest {
+
+    private static final int WIDTH = 1080;
+    private static final int HEIGHT = 2016;
+
+    private static World createWorld(int groupSize, long seed) {
+        int agentSize = (int) Math.sqrt(((float) WIDTH * HEIGHT) / (groupSize * 3)) / 2;
+        return new World(WIDTH, HEIGHT, groupSize, 2, agentSize, seed);
+    }
+
+    /**
+     * Plays a match of every seed and counts its winner, or a draw if it is not over after maxTicks.
+     * @return The length of every match, sorted.
+     */
+    private static long[] playMatches(int groupSize, int seeds, int retargetInterval, int maxTicks, int[] winners) {
+        long[] lengths = new long[seeds];
+        for (int seed = 0; seed < seeds; seed++) {
+            World world = createWorld(groupSize, 1000 + seed);
+            world.setRetargetInterval(retargetInterval);
+            while (world.getWinner() == null && world.getTick() < maxTicks) {
+                world.step(1f / World.TICK_RATE);
+            }
+            winners[world.getWinner() == null ? Team.count() : world.getWinner().ordinal()]++;
+            lengths[seed] = world.getTick();
+        }
+        Arrays.sort(lengths);
+        return lengths;
+    }
+
+    /**
+     * Pearson's chi-squared statistic of two equally sized samples of counts.
+     */
+    private static double chiSquared(int[] first, int[] second) {
+        double statistic = 0;
+        for (int k = 0; k < first.length; k++) {
+            double expected = (first[k] + second[k]) / 2.0;
+            if (expected > 0) {
+                statistic += 2 * Math.pow(first[k] - expected, 2) / expected;
+            }
+        }
+        return statistic;
+    }
+
+    /**
+     * Two-sample Kolmogorov-Smirnov statistic: the largest distance between the empirical distributions
+     * of two sorted, equally sized samples.
+     */
+    private static double kolmogorovSmirnov(long[] first, long[] second) {
+        int n = first.length;
+        double distance = 0;
+        int i = 0, j = 0;
+        while (i < n && j < n) {
+            long value = Math.min(first[i], second[j]);
+            while (i < n && first[i] == value) {
+                i++;
+            }
+            while (j < n && second[j] == value) {
+                j++;
+            }
+            distance = Math.max(distance, Math.abs(i - j) / (double) n);
+        }
+        return distance;
+    }
+
+    @Test
+    public void step_keepsPopulationAndBounds() {
+        World world = createWorld(50, 1);
+        for (int tick = 0; tick < 500; tick++) {
+            world.step(1f / World.TICK_RATE);
+            int total = 0;
+            for (int team = 0; team < Team.count(); team++) {
+                total += world.count(Team.of(team));
+            }
+            assertEquals(150, total);
+        }
+        assertEquals(500, world.getTick());
+        for (int i = 0; i < world.getAgentCount(); i++) {
+            // separation can push an agent past a wall by a few pixels until the next step
+            assertTrue(world.getX(i) > -world.getAgentSize() && world.getX(i) < WIDTH);
+            assertTrue(world.getY(i) > -world.getAgentSize() && world.getY(i) < HEIGHT);
+        }
+    }
+
+    @Test
+    public void members_matchTeamsAfterConversions() {
+        World world = createWorld(100, 3);
+        for (int tick = 0; tick < 1000; tick++) {
+            world.step(1f / World.TICK_RATE);
+        }
+        boolean[] listed = new boolean[world.getAgentCount()];
+        for (int t = 0; t < Team.count(); t++) {
+            Team team = Team.of(t);
+            int[] members = world.getMembers(team);
+            for (int slot = 0; slot < world.count(team); slot++) {
+                assertSame(team, world.getTeam(members[slot]));
+                assertFalse(listed[members[slot]]);
+                listed[members[slot]] = true;
+            }
+        }
+        for (boolean agentListed : listed) {
+            assertTrue(agentListed);
+        }
+    }
+
+    @Test
+    public void step_playsMatchToTheEnd() {
+        World world = createWorld(10, 2);
+        while (world.getWinner() == null && world.getTick() < 200_000) {
+            world.step(1f / World.TICK_RATE);
+        }
+        Team winner = world.getWinner();
+        assertNotNull("no winner after " + world.getTick() + " ticks", winner);
+        assertEquals(30, world.count(winner));
+    }
+
+    @Test
+    public void step_isReproducibleWithTheSameSeed() {
+        World first = createWorld(30, 5);
+        World second = createWorld(30, 5);
+        for (int tick = 0; tick < 300; tick++) {
+            first.step(1f / World.TICK_RATE);
+            second.step(1f / World.TICK_RATE);
+        }
+        for (int i = 0; i < first.getAgentCount(); i++) {
+            assertEquals(first.getX(i), second.getX(i), 0);
+            assertEquals(first.getY(i), second.getY(i), 0);
+            assertSame(first.getTeam(i), second.getTeam(i));
+        }
+    }
+
+    @Test
+    public void conversions_replayTheTeamCounts() {
+        World world = createWorld(20, 7);
+        final int[] counts = new int[Team.count()];
+        for (int t = 0; t < Team.count(); t++) {
+            counts[t] = world.count(Team.of(t));
+        }
+        final World observed = world;
+        final long[] lastTick = {0};
+        world.addConversionListener(new World.ConversionListener() {
+            @Override
+            public void onConversions(ConversionBatch batch) {
+                // one batch per tick, in agent order
+                assertEquals(observed.getTick(), batch.getTick());
+                assertTrue(batch.getTick() >= lastTick[0]);
+                lastTick[0] = batch.getTick() + 1;
+                assertTrue(batch.size() > 0);
+                int[] joined = new int[Team.count()];
+                for (int c = 0; c < batch.size(); c++) {
+                    Team from = batch.getFrom(c);
+                    Team to = batch.getTo(c);
+                    assertSame(from.hunter(), to);
+                    assertSame(to, observed.getTeam(batch.getAgent(c)));
+                    assertTrue(c == 0 || batch.getAgent(c) > batch.getAgent(c - 1));
+                    counts[from.ordinal()]--;
+                    counts[to.ordinal()]++;
+                    joined[to.ordinal()]++;
+                }
+                for (Team team : Team.values()) {
+                    assertEquals(joined[team.ordinal()], batch.joined(team));
+                }
+            }
+        });
+        while (world.getWinner() == null && world.getTick() < 200_000) {
+            world.step(1f / World.TICK_RATE);
+            for (int t = 0; t < Team.count(); t++) {
+                assertEquals(world.count(Team.of(t)), counts[t]);
+            }
+        }
+        assertNotNull(world.getWinner());
+        assertEquals(world.getAgentCount(), counts[world.getWinner().ordinal()]);
+        assertTrue(lastTick[0] <= world.getTick());
+    }
+
+    @Test
+    public void removeConversionListener_stopsEvents() {
+        World world = createWorld(30, 8);
+        final int[] events = {0};
+        World.ConversionListener listener = new World.ConversionListener() {
+            @Override
+            public void onConversions(ConversionBatch batch) {
+                events[0]++;
+            }
+        };
+        world.addConversionListener(listener);
+        world.removeConversionListener(listener);
+        for (int tick = 0; tick < 1000; tick++) {
+            world.step(1f / World.TICK_RATE);
+        }
+        assertEquals(0, events[0]);
+    }
+
+    @Test
+    public void retargetInterval_stillPlaysMatchesToTheEnd() {
+        World world = createWorld(10, 2);
+        assertTrue(world.setRetargetInterval(4));
+        assertEquals(4, world.getRetargetInterval());
+        while (world.getWinner() == null && world.getTick() < 200_000) {
+            world.step(1f / World.TICK_RATE);
+        }
+        assertNotNull("no winner after " + world.getTick() + " ticks", world.getWinner());
+    }
+
+    @Test
+    public void keptTargets_saveMostLookups() {
+        World exact = createWorld(100, 4);
+        exact.setRetargetInterval(1);
+        World kept = createWorld(100, 4);
+        assertEquals(World.DEFAULT_RETARGET_INTERVAL, kept.getRetargetInterval());
+        for (int tick = 0; tick < 1000; tick++) {
+            exact.step(1f / World.TICK_RATE);
+            kept.step(1f / World.TICK_RATE);
+        }
+        assertEquals(2L * exact.getAgentCount() * 1000, exact.getTargetLookups());
+        assertTrue(kept.getTargetLookups() + " of " + exact.getTargetLookups(),
+                kept.getTargetLookups() * 4 < exact.getTargetLookups());
+    }
+
+    @Test
+    public void extinctTeams_areNotLookedUp() {
+        World world = createWorld(10, 2);
+        world.setRetargetInterval(1);
+        while (world.getWinner() == null && world.getTick() < 200_000) {
+            world.step(1f / World.TICK_RATE);
+        }
+        assertNotNull(world.getWinner());
+        // every team the winner hunts or is hunted by is extinct, so no agent searches the grid anymore
+        long lookups = world.getTargetLookups();
+        for (int tick = 0; tick < 100; tick++) {
+            world.step(1f / World.TICK_RATE);
+        }
+        assertEquals(lookups, world.getTargetLookups());
+    }
+
+    @Test
+    public void keptTargets_playLikeExactLookups() {
+        // 1% significance: chi-squared with 2 degrees of freedom, Kolmogorov-Smirnov with 80 and 80 samples
+        int seeds = 80;
+        int[] exactWinners = new int[Team.count() + 1];
+        int[] keptWinners = new int[Team.count() + 1];
+        long[] exactLengths = playMatches(10, seeds, 1, 20_000, exactWinners);
+        long[] keptLengths = playMatches(10, seeds, World.DEFAULT_RETARGET_INTERVAL, 20_000, keptWinners);
+
+        // unfinished matches are too few to compare, so only the winners are
+        double winners = chiSquared(Arrays.copyOf(exactWinners, Team.count()), Arrays.copyOf(keptWinners, Team.count()));
+        assertTrue("winners differ, chi-squared " + winners, winners < 9.21);
+        double lengths = kolmogorovSmirnov(exactLengths, keptLengths);
+        assertTrue("match lengths differ, D " + lengths, lengths < 1.628 * Math.sqrt(2.0 / seeds));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setRetargetInterval_rejectsZero() {
+        createWorld(10, 2).setRetargetInterval(0);
+    }
+
+    @Test
+    public void team_huntsInACycle() {
+        assertSame(Team.PAPER, Team.ROCK.hunter());
+        assertSame(Team.SCISSORS, Team.ROCK.prey());
+        assertSame(Team.ROCK, Team.SCISSORS.hunter());
+        assertSame(Team.PAPER, Team.SCISSORS.prey());
+    }
+
+    @Test
+    public void dominance_playsBalancedMatchToTheEnd() {
+        Dominance dominance = Dominance.balanced(5);
+        int agentSize = (int) Math.sqrt(((float) WIDTH * HEIGHT) / (10 * 5)) / 2;
+        final World world = new World(WIDTH, HEIGHT, 10, 2, agentSize, 3, World.uniformSpawn(5), dominance);
+        final int[] conversions = new int[5];
+        world.addConversionListener(new World.ConversionListener() {
+            @Override
+            public void onConversions(ConversionBatch batch) {
+                for (int c = 0; c < batch.size(); c++) {
+                    assertTrue(world.getDominance().eats(batch.getToNumber(c), batch.getFromNumber(c)));
+                    conversions[batch.getToNumber(c)]++;
+                    conversions[batch.getFromNumber(c)]--;
+                }
+            }
+        });
+        assertEquals(50, world.getAgentCount());
+        while (!world.isDecided() && world.getTick() < 200_000) {
+            world.step(1f / World.TICK_RATE);
+        }
+        // every pair of teams meets, so the match only ends with a winner
+        int winner = world.getWinnerNumber();
+        assertTrue("no winner after " + world.getTick() + " ticks", winner >= 0);
+        assertEquals(50, world.count(winner));
+        for (int t = 0; t < 5; t++) {
+            assertEquals(world.count(t), 10 + conversions[t]);
+        }
+        // only the first three teams are Teams
+        assertEquals(winner < Team.count(), world.getWinner() != null);
+    }
+
+    @Test
+    public void dominance_endsWhenTheTeamsLeftIgnoreEachOther() {
+        int agentSize = (int) Math.sqrt(((float) WIDTH * HEIGHT) / (10 * 4)) / 2;
+        World world = new World(WIDTH, HEIGHT, 10, 2, agentSize, 8, World.uniformSpawn(4), Dominance.cycle(4));
+        while (!world.isDecided() && world.getTick() < 200_000) {
+            world.step(1f / World.TICK_RATE);
+        }
+        assertTrue(world.isDecided());
+        for (int hunter = 0; hunter < 4; hunter++) {
+            for (int prey = 0; prey < 4; prey++) {
+                if (world.getDominance().eats(hunter, prey)) {
+                    assertTrue(world.count(hunter) == 0 || world.count(prey) == 0);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void dominance_teamsPastTheClassicOnesAreReadByNumber() {
+        World world = new World(WIDTH, HEIGHT, 10, 2, 20, 3, World.uniformSpawn(5), Dominance.balanced(5));
+        RenderFrame frame = world.createFrame();
+        world.writeFrame(frame, 0);
+        assertEquals(5, frame.getTeamCount());
+        for (int t = 0; t < 5; t++) {
+            assertEquals(10, frame.count(t));
+        }
+        int last = world.getAgentCount() - 1;
+        assertEquals(4, world.getTeamNumber(last));
+        assertEquals(4, frame.getTeamNumber(last));
+        try {
+            world.getTeam(last);
+            fail("team 4 is not a Team");
+        } catch (IllegalArgumentException expected) {
+            // a team past the classic ones is not a Team
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void writeFrame_rejectsAFrameOfOtherTeams() {
+        World world = new World(WIDTH, HEIGHT, 10, 2, 20, 3, World.uniformSpawn(5), Dominance.balanced(5));
+        world.writeFrame(new RenderFrame(world.getAgentCount()), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void snapshot_rejectsOtherDominance() {
+        new Snapshot(new World(WIDTH, HEIGHT, 5, 2, 20, 1, World.uniformSpawn(4), Dominance.cycle(4)));
+    }
+}
@@ -15,4 +15,7 @@ dependencyResolutionManagement {
 
 rootProject.name = "Rock Paper Scissors"
 include(":app")
+include(":engine")
+include(":benchmark")
+include(":batch")
  
\ No newline at end of file